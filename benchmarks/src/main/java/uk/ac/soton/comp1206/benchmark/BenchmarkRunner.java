@@ -0,0 +1,34 @@
+package uk.ac.soton.comp1206.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the game logic benchmarks with the GC profiler attached, so every result reports both ops/s and the bytes
+ * allocated per op (gc.alloc.rate.norm).
+ *
+ * Any standard JMH command line options can be passed, for example a regular expression to run only some benchmarks
+ * or -rf json -rff results.json to keep the results.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Run the benchmarks
+     * @param args JMH command line options
+     * @throws RunnerException if a benchmark fails
+     * @throws CommandLineOptionException if the options are invalid
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
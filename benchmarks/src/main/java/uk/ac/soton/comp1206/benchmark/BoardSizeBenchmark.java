@@ -0,0 +1,121 @@
+package uk.ac.soton.comp1206.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GameRandom;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.ManualClock;
+import uk.ac.soton.comp1206.game.PieceShape;
+
+/**
+ * Benchmarks for the game logic on boards of different sizes, including non-square ones.
+ *
+ * A placement that does not complete a line should cost the same on any board. Each placement is played on a free
+ * anchor, checked for lines and then taken back, with the engine's placement index kept up to date throughout. Taking
+ * the piece back costs the same as placing it, so the result is twice the cost of a placement.
+ *
+ * clearRow completes and clears a single row and then fills it again, so it does scale with the number of columns.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardSizeBenchmark {
+
+    /**
+     * Board size as columns x rows
+     */
+    @Param({"5x5", "64x64", "256x256", "256x16"})
+    String size;
+
+    GameEngine engine;
+    Grid grid;
+    PieceShape shape;
+
+    /**
+     * Anchors to place on in turn, spread over the board
+     */
+    int[] anchorX, anchorY;
+    int next = 0;
+
+    /**
+     * The row cleared by clearRow, along the bottom of the board
+     */
+    int row;
+
+    @Setup
+    public void setup() {
+        Configurator.setRootLevel(org.apache.logging.log4j.Level.WARN);
+
+        String[] parts = size.split("x");
+        int cols = Integer.parseInt(parts[0]);
+        int rows = Integer.parseInt(parts[1]);
+        engine = new GameEngine(cols, rows, new ManualClock(), new GameRandom(1));
+        grid = engine.getGrid();
+
+        //Build the placement index, as a running game would
+        grid.getPlacementIndex();
+        engine.start();
+
+        //The square, placed along the top of the board
+        shape = PieceShape.get(4, 0);
+        row = rows - 1;
+        anchorX = new int[cols - 2];
+        anchorY = new int[cols - 2];
+        for (int i = 0; i < anchorX.length; i++) {
+            anchorX[i] = i + 1;
+            anchorY[i] = 1;
+        }
+
+        //Fill the clear row but for its last block
+        for (int x = 0; x < cols - 1; x++) {
+            grid.set(x, row, 1);
+        }
+    }
+
+    @Benchmark
+    public Grid placement() {
+        int x = anchorX[next];
+        int y = anchorY[next];
+        next = (next + 1) % anchorX.length;
+
+        grid.playShape(shape, x, y);
+        grid.afterPiece(engine);
+        for (int cell = 0; cell < shape.getCellCount(); cell++) {
+            grid.set(x + shape.getCellX(cell) - 1, y + shape.getCellY(cell) - 1, 0);
+        }
+        return grid;
+    }
+
+    @Benchmark
+    public boolean hasLegalMove() {
+        return engine.hasLegalMove();
+    }
+
+    @Benchmark
+    public Grid clearRow() {
+        int cols = grid.getCols();
+        grid.set(cols - 1, row, 1);
+        grid.afterPiece(engine);
+        for (int x = 0; x < cols - 1; x++) {
+            grid.set(x, row, 1);
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,80 @@
+package uk.ac.soton.comp1206.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GameRandom;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * Benchmarks for the line clear check run after every placement, with no lines, one line, and a row and column
+ * crossing each other.
+ *
+ * afterPiece empties whatever it clears, so each call first puts back the blocks of the full lines. That cost is
+ * included and is the same for every run of a given case.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClearBenchmark {
+
+    /**
+     * Number of lines full when afterPiece runs
+     */
+    @Param({"0", "1", "2"})
+    int lines;
+
+    GameEngine engine;
+    Grid grid;
+
+    @Setup
+    public void setup() {
+        Configurator.setRootLevel(org.apache.logging.log4j.Level.WARN);
+
+        engine = new GameEngine(5, 5, () -> 0, new GameRandom(1));
+        grid = engine.getGrid();
+
+        //Fill everything but one diagonal, so no line is full on its own
+        for (int y = 0; y < grid.getRows(); y++) {
+            for (int x = 0; x < grid.getCols(); x++) {
+                if (x != y) {
+                    grid.set(x, y, 1);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Grid afterPiece() {
+        //Complete row 0, and column 0 for the two line case
+        if (lines >= 1) {
+            for (int x = 0; x < grid.getCols(); x++) {
+                grid.set(x, 0, 2);
+            }
+        }
+        if (lines >= 2) {
+            for (int y = 0; y < grid.getRows(); y++) {
+                grid.set(0, y, 3);
+            }
+        }
+
+        grid.afterPiece(engine);
+        return grid;
+    }
+}
@@ -0,0 +1,104 @@
+package uk.ac.soton.comp1206.benchmark;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.soton.comp1206.event.Multimedia;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * Benchmark for a full placement through Game.place, the placement behind a click, including the engine, the property
+ * updates and the timer restart. Sound and logging are turned off so they do not swamp the result.
+ *
+ * Each call finds a legal anchor for the current piece and clicks it, rotating or swapping if there is none, and
+ * starts a fresh game when nothing fits at all. The search and the click run on the game's logic thread, and the call
+ * waits for them and then pulses the game, so every placement measured has been applied to the properties.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+    Game game;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        Multimedia.setAudioEnabled(false);
+        Configurator.setRootLevel(org.apache.logging.log4j.Level.WARN);
+        newGame();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        game.stop();
+    }
+
+    private void newGame() {
+        if (game != null) {
+            game.stop();
+        }
+        game = new Game(5, 5);
+        game.start();
+    }
+
+    @Benchmark
+    public boolean blockClicked() {
+        CompletableFuture<Boolean> placed = new CompletableFuture<>();
+        game.execute(() -> placed.complete(clickAnywhere()));
+        boolean result = placed.join();
+        game.pulse();
+
+        if (!result) {
+            newGame();
+        }
+        return result;
+    }
+
+    /**
+     * Place the current piece on its first legal anchor. Runs on the logic thread.
+     * @return whether a piece was placed
+     */
+    private boolean clickAnywhere() {
+        GameEngine engine = game.getEngine();
+        Grid grid = engine.getGrid();
+
+        for (int attempt = 0; attempt < 8; attempt++) {
+            GamePiece piece = engine.getCurrentPiece();
+            for (int y = 0; y < grid.getRows(); y++) {
+                for (int x = 0; x < grid.getCols(); x++) {
+                    if (grid.canPlayPiece(piece, x, y)) {
+                        return game.place(x, y);
+                    }
+                }
+            }
+
+            //Try every rotation of the current piece, then of the following piece
+            if (attempt == 3) {
+                engine.swap();
+            } else {
+                engine.rotate();
+            }
+        }
+        return false;
+    }
+}
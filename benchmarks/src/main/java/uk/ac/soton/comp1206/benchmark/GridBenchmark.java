@@ -0,0 +1,91 @@
+package uk.ac.soton.comp1206.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.GameRandom;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.PieceShape;
+
+/**
+ * Benchmarks for placing pieces on the Grid.
+ *
+ * canPlayPiece is measured against boards filled to different levels, cycling through every piece, rotation and
+ * anchor so that both the accepted and rejected paths are covered.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridBenchmark {
+
+    /**
+     * Percentage of the board that is filled before checking placements
+     */
+    @Param({"0", "25", "50", "75"})
+    int fill;
+
+    Grid grid;
+    Grid emptyGrid;
+    GamePiece[] pieces;
+    int next;
+
+    @Setup
+    public void setup() {
+        grid = new Grid(5, 5);
+        emptyGrid = new Grid(5, 5);
+
+        //Fill the board the same way every run
+        GameRandom random = new GameRandom(1);
+        for (int y = 0; y < grid.getRows(); y++) {
+            for (int x = 0; x < grid.getCols(); x++) {
+                if (random.nextInt(100) < fill) {
+                    grid.set(x, y, 1 + random.nextInt(GamePiece.PIECES));
+                }
+            }
+        }
+
+        pieces = new GamePiece[GamePiece.PIECES * PieceShape.ROTATIONS];
+        for (int i = 0; i < pieces.length; i++) {
+            pieces[i] = GamePiece.createPiece(i / PieceShape.ROTATIONS, i % PieceShape.ROTATIONS);
+        }
+    }
+
+    @Benchmark
+    public boolean canPlayPiece() {
+        int i = next++;
+        GamePiece piece = pieces[i % pieces.length];
+        int anchor = (i / pieces.length) % (grid.getCols() * grid.getRows());
+        return grid.canPlayPiece(piece, anchor % grid.getCols(), anchor / grid.getCols());
+    }
+
+    /**
+     * Play a piece in the middle of an empty board. The blocks are emptied again afterwards so every call does the
+     * same work, the cost of emptying them is included.
+     */
+    @Benchmark
+    public Grid playPiece() {
+        GamePiece piece = pieces[next++ % pieces.length];
+        emptyGrid.playPiece(piece, 2, 2);
+
+        PieceShape shape = piece.getShape();
+        for (int cell = 0; cell < shape.getCellCount(); cell++) {
+            emptyGrid.set(shape.getCellX(cell) + 1, shape.getCellY(cell) + 1, 0);
+        }
+        return emptyGrid;
+    }
+}
@@ -0,0 +1,53 @@
+package uk.ac.soton.comp1206.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * Benchmarks for creating and rotating pieces
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceBenchmark {
+
+    GamePiece piece;
+    int next;
+
+    @Setup
+    public void setup() {
+        piece = GamePiece.createPiece(5);
+    }
+
+    @Benchmark
+    public GamePiece rotate() {
+        piece.rotate();
+        return piece;
+    }
+
+    @Benchmark
+    public GamePiece rotateLeft() {
+        piece.rotateLeft();
+        return piece;
+    }
+
+    @Benchmark
+    public GamePiece createPiece() {
+        return GamePiece.createPiece(next++ % GamePiece.PIECES);
+    }
+}
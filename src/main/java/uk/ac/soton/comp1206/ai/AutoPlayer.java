@@ -0,0 +1,379 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.PieceShape;
+import uk.ac.soton.comp1206.game.PlacementIndex;
+import uk.ac.soton.comp1206.game.Zobrist;
+
+/**
+ * The AutoPlayer chooses placements for a game on its own, for soak testing, balancing and demo play.
+ *
+ * It searches every rotation and anchor of the current piece, and of the following piece if the two are swapped,
+ * looking ahead a configurable number of placements. The first two placements use the known current and following
+ * pieces. Deeper placements average over every piece that could be drawn. Positions are scored by the points earned
+ * on the way plus a BoardEvaluator at the end.
+ *
+ * Every first placement is searched as its own task on a ForkJoinPool, so a search uses every core. The tasks share a
+ * TranspositionTable, so the best placement of a piece on a board is only worked out once however many different
+ * orders of moves lead to that board.
+ */
+public class AutoPlayer implements Strategy {
+
+    /**
+     * The value of a position where the next piece cannot be placed anywhere
+     */
+    private static final double NO_MOVE = -1000;
+
+    /**
+     * The number of entries in the transposition table made by default
+     */
+    public static final int TABLE_SIZE = 1 << 18;
+
+    /**
+     * Kinds of values mixed into the hash of a searched position alongside the board
+     */
+    private static final int HASH_MULTIPLIER = 0, HASH_DEPTH = 1;
+
+    /**
+     * How many placements to look ahead, including the first
+     */
+    private final int depth;
+
+    /**
+     * The pool the search runs on
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Scores the positions at the end of the search
+     */
+    private final BoardEvaluator evaluator;
+
+    /**
+     * Remembers positions already searched, or null to search every position
+     */
+    private final TranspositionTable table;
+
+    /**
+     * The number of placements tried by every search so far
+     */
+    private final LongAdder nodes = new LongAdder();
+
+    /**
+     * Create a player looking ahead at the current and following pieces, searching on the common pool
+     */
+    public AutoPlayer() {
+        this(2);
+    }
+
+    /**
+     * Create a player with the given lookahead, searching on the common pool with the default evaluator
+     * @param depth number of placements to look ahead, at least 1
+     */
+    public AutoPlayer(int depth) {
+        this(depth, ForkJoinPool.commonPool(), BoardEvaluator.DEFAULT);
+    }
+
+    /**
+     * Create a player with the given lookahead, pool and evaluator, and a transposition table of the default size
+     * @param depth number of placements to look ahead, at least 1
+     * @param pool the pool to search on
+     * @param evaluator scores the positions at the end of the search
+     */
+    public AutoPlayer(int depth, ForkJoinPool pool, BoardEvaluator evaluator) {
+        this(depth, pool, evaluator, new TranspositionTable(TABLE_SIZE));
+    }
+
+    /**
+     * Create a player with the given lookahead, pool, evaluator and transposition table
+     * @param depth number of placements to look ahead, at least 1
+     * @param pool the pool to search on
+     * @param evaluator scores the positions at the end of the search
+     * @param table remembers positions already searched, may be shared with other players using the same evaluator,
+     *              or null to search every position
+     */
+    public AutoPlayer(int depth, ForkJoinPool pool, BoardEvaluator evaluator, TranspositionTable table) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1: " + depth);
+        }
+        this.depth = depth;
+        this.pool = pool;
+        this.evaluator = evaluator;
+        this.table = table;
+    }
+
+    /**
+     * Find the best move for the current state of a game
+     * @param engine the game
+     * @return the best move, or null if neither piece can be placed anywhere
+     */
+    public Move findMove(GameEngine engine) {
+        GamePiece current = engine.getCurrentPiece();
+        GamePiece following = engine.getFollowingPiece();
+        if (current == null || engine.isGameOver()) {
+            return null;
+        }
+
+        Grid grid = engine.getGrid();
+        int multiplier = engine.getMultiplier();
+
+        int search = table != null ? table.newSearch() : 0;
+
+        // One task for every first placement, with and without swapping
+        List<MoveTask> tasks = new ArrayList<>();
+        addTasks(tasks, grid, false, current.getPiece(), following.getPiece(), multiplier, search);
+        if (current.getPiece() != following.getPiece()) {
+            addTasks(tasks, grid, true, following.getPiece(), current.getPiece(), multiplier, search);
+        }
+        if (tasks.isEmpty()) {
+            return null;
+        }
+
+        return pool.invoke(new RecursiveTask<Move>() {
+            @Override
+            protected Move compute() {
+                invokeAll(tasks);
+
+                Move best = null;
+                for (MoveTask task : tasks) {
+                    Move move = task.join();
+                    if (best == null || move.getValue() > best.getValue()) {
+                        best = move;
+                    }
+                }
+                return best;
+            }
+        });
+    }
+
+    /**
+     * Get the number of placements tried by every search so far
+     * @return number of placements
+     */
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * Find and play the best move directly on an engine
+     * @param engine the game
+     * @return true if a piece was placed
+     */
+    @Override
+    public boolean play(GameEngine engine) {
+        Move move = findMove(engine);
+        if (move == null) {
+            return false;
+        }
+
+        if (move.isSwap()) {
+            engine.swap();
+        }
+        while (engine.getCurrentPiece().getRotation() != move.getRotation()) {
+            engine.rotate();
+        }
+        return engine.place(move.getX(), move.getY());
+    }
+
+    /**
+     * Find and play the best move through the same actions a player uses, so the game reacts exactly as it would to
+     * clicks. The search and the move run as one command on the game's logic thread.
+     * @param game the game
+     * @return completes with true if a piece was placed
+     */
+    public CompletableFuture<Boolean> play(Game game) {
+        CompletableFuture<Boolean> placed = new CompletableFuture<>();
+        game.execute(() -> {
+            GameEngine engine = game.getEngine();
+            Move move = findMove(engine);
+            if (move == null) {
+                placed.complete(false);
+                return;
+            }
+
+            if (move.isSwap()) {
+                game.swapCurrentPiece();
+            }
+            while (engine.getCurrentPiece().getRotation() != move.getRotation()) {
+                game.rotateCurrentPiece();
+            }
+            placed.complete(game.place(move.getX(), move.getY()));
+        });
+        return placed;
+    }
+
+    /**
+     * Add a task for every legal placement of a piece, skipping rotations identical to one already added. The legal
+     * anchors are read from the grid's placement index rather than tried one by one.
+     */
+    private void addTasks(List<MoveTask> tasks, Grid grid, boolean swap, int piece, int next, int multiplier,
+                          int search) {
+        PlacementIndex index = grid.getPlacementIndex();
+        int words = grid.getWordsPerRow();
+        for (int rotation = 0; rotation < PieceShape.ROTATIONS; rotation++) {
+            PieceShape shape = PieceShape.get(piece, rotation);
+            if (isRepeat(shape) || index.countLegal(shape) == 0) continue;
+
+            long[] anchors = index.getLegalAnchors(shape);
+            for (int y = 0; y < grid.getRows(); y++) {
+                for (int word = 0; word < words; word++) {
+                    for (long bits = anchors[y * words + word]; bits != 0; bits &= bits - 1) {
+                        int x = (word << 6) + Long.numberOfTrailingZeros(bits);
+                        tasks.add(new MoveTask(grid, swap, shape, x, y, next, multiplier, search));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether an earlier rotation of a piece has exactly the same blocks
+     * @param shape the shape
+     * @return true if the shape can be skipped
+     */
+    private static boolean isRepeat(PieceShape shape) {
+        for (int rotation = 0; rotation < shape.getRotation(); rotation++) {
+            if (PieceShape.get(shape.getPiece(), rotation).getMask() == shape.getMask()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the points the engine awards for a clear
+     */
+    private static double points(Grid grid, int lines, int multiplier) {
+        return lines == 0 ? 0 : lines * grid.getBlocksCleared() * 10.0 * (multiplier + 1);
+    }
+
+    /**
+     * Searches everything that follows a single first placement
+     */
+    private class MoveTask extends RecursiveTask<Move> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Grid grid;
+        private final boolean swap;
+        private final PieceShape shape;
+        private final int x;
+        private final int y;
+        private final int next;
+        private final int multiplier;
+
+        /**
+         * The search this task is part of, from the transposition table
+         */
+        private final int search;
+
+        /**
+         * A scratch grid for every placement in the search, reused between branches
+         */
+        private Grid[] scratch;
+
+        MoveTask(Grid grid, boolean swap, PieceShape shape, int x, int y, int next, int multiplier, int search) {
+            this.grid = grid;
+            this.swap = swap;
+            this.shape = shape;
+            this.x = x;
+            this.y = y;
+            this.next = next;
+            this.multiplier = multiplier;
+            this.search = search;
+        }
+
+        @Override
+        protected Move compute() {
+            scratch = new Grid[depth];
+            for (int i = 0; i < depth; i++) {
+                scratch[i] = new Grid(grid.getCols(), grid.getRows());
+            }
+
+            double value = place(grid, 0, shape, x, y, next, multiplier);
+            return new Move(swap, shape.getRotation(), x, y, value);
+        }
+
+        /**
+         * Value a placement: the points it earns plus the value of the best position reachable after it
+         * @param from the board before the placement
+         * @param level how many placements deep this is, 0 for the first
+         * @param next the piece after this one, or -1 if it is not known
+         */
+        private double place(Grid from, int level, PieceShape shape, int x, int y, int next, int multiplier) {
+            nodes.increment();
+            Grid board = scratch[level];
+            board.copyFrom(from);
+            board.playShape(shape, x, y);
+
+            int lines = board.clearLines();
+            double value = points(board, lines, multiplier);
+            int nextMultiplier = lines > 0 ? multiplier + 1 : 0;
+
+            if (level + 1 >= depth) {
+                return value + evaluator.evaluate(board);
+            }
+
+            if (next >= 0) {
+                return value + best(board, level + 1, next, nextMultiplier);
+            }
+
+            // The piece is not known yet, so take the average over every piece
+            double total = 0;
+            for (int piece = 0; piece < GamePiece.PIECES; piece++) {
+                total += best(board, level + 1, piece, nextMultiplier);
+            }
+            return value + total / GamePiece.PIECES;
+        }
+
+        /**
+         * Find the value of the best placement of a piece
+         * @param board the board to place on
+         * @param level how many placements deep the placement is
+         * @param piece the piece to place
+         */
+        private double best(Grid board, int level, int piece, int multiplier) {
+            long hash = 0;
+            if (table != null) {
+                hash = board.getHash() ^ Zobrist.piece(0, piece) ^ Zobrist.value(HASH_MULTIPLIER, multiplier)
+                    ^ Zobrist.value(HASH_DEPTH, depth - level);
+                double known = table.get(hash);
+                if (!Double.isNaN(known)) {
+                    return known;
+                }
+            }
+
+            double best = Double.NEGATIVE_INFINITY;
+            for (int rotation = 0; rotation < PieceShape.ROTATIONS; rotation++) {
+                PieceShape shape = PieceShape.get(piece, rotation);
+                if (isRepeat(shape)) continue;
+
+                for (int y = 0; y < board.getRows(); y++) {
+                    for (int x = 0; x < board.getCols(); x++) {
+                        if (board.canPlayShape(shape, x, y)) {
+                            best = Math.max(best, place(board, level, shape, x, y, -1, multiplier));
+                        }
+                    }
+                }
+            }
+
+            if (best == Double.NEGATIVE_INFINITY) {
+                best = NO_MOVE + evaluator.evaluate(board);
+            }
+            if (table != null) {
+                table.put(hash, depth - level, best, search);
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * A BoardEvaluator scores a board position for the AutoPlayer. Higher is better. Points scored on the way to the
+ * position are added by the search, so an evaluator only needs to judge how good the board is to keep playing on.
+ */
+@FunctionalInterface
+public interface BoardEvaluator {
+
+    /**
+     * The default evaluator. Prefers emptier boards, and penalises holes (empty blocks boxed in on every side) and
+     * ragged edges between filled and empty blocks, both of which make pieces harder to fit.
+     */
+    BoardEvaluator DEFAULT = grid -> {
+        int filled = 0;
+        int holes = 0;
+        int edges = 0;
+
+        for (int y = 0; y < grid.getRows(); y++) {
+            for (int x = 0; x < grid.getCols(); x++) {
+                boolean occupied = grid.isOccupied(x, y);
+                if (occupied) {
+                    filled++;
+                } else if (blocked(grid, x - 1, y) && blocked(grid, x + 1, y)
+                        && blocked(grid, x, y - 1) && blocked(grid, x, y + 1)) {
+                    holes++;
+                }
+
+                // Count changes between filled and empty to the right and below
+                if (x + 1 < grid.getCols() && occupied != grid.isOccupied(x + 1, y)) edges++;
+                if (y + 1 < grid.getRows() && occupied != grid.isOccupied(x, y + 1)) edges++;
+            }
+        }
+
+        return -1.0 * filled - 6.0 * holes - 0.5 * edges;
+    };
+
+    /**
+     * Check whether a neighbouring block is filled or off the board
+     * @param grid the grid
+     * @param x column
+     * @param y row
+     * @return true if nothing can be placed there
+     */
+    private static boolean blocked(Grid grid, int x, int y) {
+        return x < 0 || y < 0 || x >= grid.getCols() || y >= grid.getRows() || grid.isOccupied(x, y);
+    }
+
+    /**
+     * Score a board position
+     * @param grid the board, which must not be modified
+     * @return the value of the position, higher is better
+     */
+    double evaluate(Grid grid);
+}
@@ -0,0 +1,60 @@
+package uk.ac.soton.comp1206.ai;
+
+/**
+ * A Move is a placement chosen by an AutoPlayer: whether to swap pieces first, which rotation to place the piece in
+ * and the block to place it on, along with the value the search gave it.
+ */
+public class Move {
+
+    private final boolean swap;
+    private final int rotation;
+    private final int x;
+    private final int y;
+    private final double value;
+
+    /**
+     * Create a new move
+     * @param swap true to swap the current and following pieces before placing
+     * @param rotation rotation to place the piece in
+     * @param x column to place the piece on
+     * @param y row to place the piece on
+     * @param value the value of the move from the search
+     */
+    public Move(boolean swap, int rotation, int x, int y, double value) {
+        this.swap = swap;
+        this.rotation = rotation;
+        this.x = x;
+        this.y = y;
+        this.value = value;
+    }
+
+    public boolean isSwap() {
+        return swap;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Return a string representation of this move
+     * @return string representation
+     */
+    @Override
+    public String toString() {
+        return "Move [swap = " + swap + ", rotation = " + rotation + ", x = " + x + ", y = " + y + ", value = " + value
+                + "]";
+    }
+}
@@ -0,0 +1,18 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+
+/**
+ * A Strategy makes one move at a time in a headless game. Strategies may be shared between threads playing
+ * different games, so they must not keep any state of their own between calls.
+ */
+@FunctionalInterface
+public interface Strategy {
+
+    /**
+     * Make the next move in the given game
+     * @param engine the game
+     * @return true if a piece was placed, false if the strategy could not find anywhere to place one
+     */
+    boolean play(GameEngine engine);
+}
@@ -0,0 +1,150 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The TranspositionTable remembers the values of positions already searched, keyed by their Zobrist hash, so a
+ * position reached again through a different order of moves does not have to be searched again.
+ *
+ * The table has a fixed number of entries, set when it is created, so its memory use never grows. Entries are held
+ * in buckets of two. When a bucket is full the entry from an older search is replaced first, then the one searched
+ * to a shallower depth, since it saved the least work.
+ *
+ * Searches are aged per thread, since each game is searched from one thread at a time. Every thread starting
+ * searches has its own owner number and generation stored with its entries, so a search only ages the entries of
+ * earlier searches from the same thread and never those of another game still being played.
+ *
+ * Any number of search threads can share a table without locking. Each entry is two longs, the data and the key
+ * XORed with the data. A reader only trusts an entry if XORing them back gives the key it asked for, so an entry
+ * half overwritten by another thread is treated as a miss rather than read as the wrong value.
+ */
+public class TranspositionTable {
+
+    /**
+     * The key of each entry XORed with its data, two longs per entry: key then data
+     */
+    private final AtomicLongArray entries;
+
+    /**
+     * The mask taking a hash to the first entry of its bucket
+     */
+    private final int mask;
+
+    /**
+     * The number of owners told apart, one per searching thread
+     */
+    private static final int OWNERS = 256;
+
+    /**
+     * Hands out owner numbers to searching threads
+     */
+    private final AtomicInteger owners = new AtomicInteger();
+
+    /**
+     * The owner number and current generation of each searching thread
+     */
+    private final ThreadLocal<int[]> searches = ThreadLocal.withInitial(
+        () -> new int[] { owners.getAndIncrement() % OWNERS, 0 });
+
+    /**
+     * Create a new table
+     * @param size number of entries, rounded up to a power of two of at least 2
+     */
+    public TranspositionTable(int size) {
+        int capacity = Math.max(2, Integer.highestOneBit(Math.max(1, size - 1)) << 1);
+        entries = new AtomicLongArray(capacity * 2);
+        mask = (capacity - 1) & ~1;
+    }
+
+    /**
+     * Start a new search from this thread. Entries from earlier searches from this thread are kept, but are replaced
+     * before any from this one.
+     * @return the search, to give to every put made for it
+     */
+    public int newSearch() {
+        int[] search = searches.get();
+        search[1] = (search[1] + 1) & 0xFFFF;
+        return search[0] << 16 | search[1];
+    }
+
+    /**
+     * Look up the value of a position
+     * @param hash Zobrist hash of the position, including anything else the value depends on
+     * @return the value, or NaN if it is not in the table
+     */
+    public double get(long hash) {
+        int bucket = (int) hash & mask;
+        for (int entry = bucket; entry < bucket + 2; entry++) {
+            long data = entries.getOpaque(entry * 2 + 1);
+            if ((entries.getOpaque(entry * 2) ^ data) == hash) {
+                return Float.intBitsToFloat((int) (data >>> 32));
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Store the value of a position
+     * @param hash Zobrist hash of the position, including anything else the value depends on
+     * @param depth how many placements were searched to find the value, to decide what to replace
+     * @param value the value
+     * @param search the search the value was found by, from newSearch
+     */
+    public void put(long hash, int depth, double value, int search) {
+        long data = ((long) Float.floatToRawIntBits((float) value) << 32) | ((long) search << 8) | (depth & 0xFF);
+        int bucket = (int) hash & mask;
+
+        int replace = bucket;
+        int worst = Integer.MAX_VALUE;
+        for (int entry = bucket; entry < bucket + 2; entry++) {
+            long old = entries.getOpaque(entry * 2 + 1);
+            if ((entries.getOpaque(entry * 2) ^ old) == hash) {
+                // Already here, so just refresh it
+                replace = entry;
+                break;
+            }
+
+            int priority = priority(old, search);
+            if (priority < worst) {
+                worst = priority;
+                replace = entry;
+            }
+        }
+
+        entries.setOpaque(replace * 2, hash ^ data);
+        entries.setOpaque(replace * 2 + 1, data);
+    }
+
+    /**
+     * Work out how much an entry is worth keeping: any entry from this search, or from another thread's search, is
+     * worth more than one from an earlier search from this thread, and deeper entries are worth more than shallower
+     * ones
+     */
+    private int priority(long data, int search) {
+        if (data == 0) {
+            // Never used
+            return -1;
+        }
+        int stored = (int) (data >>> 8) & 0xFFFFFF;
+        boolean old = (stored >>> 16) == (search >>> 16) && stored != search;
+        return (old ? 0 : 0x100) | (int) (data & 0xFF);
+    }
+
+    /**
+     * Remove every entry
+     */
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.setOpaque(i, 0);
+        }
+    }
+
+    /**
+     * Get the number of entries the table can hold
+     * @return capacity
+     */
+    public int capacity() {
+        return entries.length() / 2;
+    }
+}
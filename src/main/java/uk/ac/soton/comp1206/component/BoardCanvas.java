@@ -0,0 +1,189 @@
+package uk.ac.soton.comp1206.component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import uk.ac.soton.comp1206.game.ClearedBlocks;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * A BoardCanvas draws a whole Grid onto a single Canvas, for boards too big to have a GameBlock for every block.
+ *
+ * It does not bind to the grid's properties. Once per frame it checks whether the grid has changed, and if it has it
+ * repaints only the blocks whose values differ from what it last drew.
+ */
+public class BoardCanvas extends Canvas {
+
+    /**
+     * Blocks smaller than this are drawn without a border, which would cover them
+     */
+    private static final double MIN_BORDER_SIZE = 6;
+
+    private final Grid grid;
+    private final int cols;
+    private final int rows;
+    private final double blockWidth;
+    private final double blockHeight;
+    private final GraphicsContext gc = getGraphicsContext2D();
+
+    /**
+     * The value last drawn in every block, indexed by y * cols + x
+     */
+    private final int[] drawn;
+
+    /**
+     * The modification count of the grid when it was last drawn
+     */
+    private int drawnModCount;
+
+    /**
+     * Clears still fading out
+     */
+    private final List<Fade> fades = new ArrayList<>();
+
+    /**
+     * Redraws the board every frame until the canvas is disposed of
+     */
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            update();
+        }
+    };
+
+    /**
+     * Create a canvas drawing the given grid
+     * @param grid the grid to draw
+     * @param width the visual width
+     * @param height the visual height
+     */
+    public BoardCanvas(Grid grid, double width, double height) {
+        super(width, height);
+        this.grid = grid;
+        this.cols = grid.getCols();
+        this.rows = grid.getRows();
+        this.blockWidth = width / cols;
+        this.blockHeight = height / rows;
+        this.drawn = new int[cols * rows];
+
+        // Draw everything on the first frame
+        Arrays.fill(drawn, -1);
+        drawnModCount = grid.getModCount() - 1;
+
+        timer.start();
+    }
+
+    /**
+     * Stop redrawing the board. Must be called once the canvas is no longer shown, or it is drawn every frame forever.
+     */
+    public void dispose() {
+        timer.stop();
+    }
+
+    /**
+     * Repaint every block that has changed since the last frame, and step any fades
+     */
+    private void update() {
+        int modCount = grid.getModCount();
+        if (modCount != drawnModCount) {
+            drawnModCount = modCount;
+            for (int y = 0; y < rows; y++) {
+                for (int x = 0; x < cols; x++) {
+                    int value = grid.get(x, y);
+                    if (drawn[y * cols + x] != value) {
+                        drawn[y * cols + x] = value;
+                        paint(x, y, value, 1);
+                    }
+                }
+            }
+        }
+
+        for (int i = fades.size() - 1; i >= 0; i--) {
+            Fade fade = fades.get(i);
+            fade.opacity -= 0.02;
+            for (int cell = 0; cell < fade.cleared.size(); cell++) {
+                int x = fade.cleared.getX(cell);
+                int y = fade.cleared.getY(cell);
+                // Leave anything placed since the clear alone
+                if (drawn[y * cols + x] != 0) continue;
+
+                paint(x, y, 0, 1);
+                if (fade.opacity > 0) {
+                    paint(x, y, fade.cleared.getValue(cell), fade.opacity);
+                }
+            }
+            if (fade.opacity <= 0) {
+                fades.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Paint a single block
+     */
+    private void paint(int x, int y, int value, double opacity) {
+        double px = x * blockWidth;
+        double py = y * blockHeight;
+
+        if (opacity >= 1) {
+            gc.clearRect(px, py, blockWidth, blockHeight);
+        }
+
+        if (value == 0) {
+            gc.setFill(Color.rgb(0, 0, 0, 0.2));
+        } else if (value > 0 && value < GameBlock.COLOURS.length) {
+            gc.setFill(opacity < 1 ? GameBlock.COLOURS[value].deriveColor(0, 1, 1, opacity) : GameBlock.COLOURS[value]);
+        } else {
+            return;
+        }
+        gc.fillRect(px, py, blockWidth, blockHeight);
+
+        if (blockWidth >= MIN_BORDER_SIZE && blockHeight >= MIN_BORDER_SIZE) {
+            gc.setStroke(Color.BLACK);
+            gc.strokeRect(px, py, blockWidth, blockHeight);
+        }
+    }
+
+    /**
+     * Fade out every block removed by a line clear
+     * @param cleared the blocks that were cleared
+     */
+    public void fadeOut(ClearedBlocks cleared) {
+        fades.add(new Fade(cleared));
+    }
+
+    /**
+     * Get the column at a position on the canvas
+     * @param px horizontal position
+     * @return column, clamped to the board
+     */
+    public int getColumnAt(double px) {
+        return Math.max(0, Math.min(cols - 1, (int) (px / blockWidth)));
+    }
+
+    /**
+     * Get the row at a position on the canvas
+     * @param py vertical position
+     * @return row, clamped to the board
+     */
+    public int getRowAt(double py) {
+        return Math.max(0, Math.min(rows - 1, (int) (py / blockHeight)));
+    }
+
+    /**
+     * A clear being faded out
+     */
+    private static class Fade {
+        private final ClearedBlocks cleared;
+        private double opacity = 1;
+
+        Fade(ClearedBlocks cleared) {
+            this.cleared = cleared;
+        }
+    }
+}
@@ -39,8 +39,7 @@ public class GameBlock extends Canvas {
             Color.AQUAMARINE,
             Color.BLUE,
             Color.MEDIUMPURPLE,
-            Color.PURPLE,
-            Color.rgb(0, 0, 0, 0.5)
+            Color.PURPLE
     };
 
     private final GameBoard gameBoard;
@@ -101,6 +100,21 @@ public class GameBlock extends Canvas {
         paint();
     }
 
+    /**
+     * Paint a fading copy of the colour this block held before it was cleared. The model has already been cleared,
+     * so the fade is drawn over the empty block, and is skipped if something has been placed here in the meantime.
+     * @param clearedValue the value the block held before it was cleared
+     * @param opacity how much of the colour to draw, from 0 to 1
+     */
+    public void paintFade(int clearedValue, double opacity) {
+        if (value.get() != 0 || clearedValue <= 0 || clearedValue >= COLOURS.length) {
+            return;
+        }
+        paintEmpty();
+        gc.setFill(COLOURS[clearedValue].deriveColor(0, 1, 1, opacity));
+        gc.fillRect(0, 0, width, height);
+    }
+
     /**
      * Handle painting of the block canvas
      */
@@ -1,12 +1,15 @@
 package uk.ac.soton.comp1206.component;
 
+import javafx.animation.AnimationTimer;
 import javafx.scene.input.MouseButton;
-import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.event.BlockClickedListener;
+import uk.ac.soton.comp1206.game.ClearedBlocks;
 import uk.ac.soton.comp1206.game.Grid;
 
 /**
@@ -18,11 +21,22 @@ import uk.ac.soton.comp1206.game.Grid;
  *
  * The GameBoard is only a visual representation and should not contain game logic or model logic in it, which should
  * take place in the Grid.
+ *
+ * Boards with more than MAX_BLOCKS blocks are drawn on a single BoardCanvas instead of a GameBlock per block, since
+ * a Canvas for every block of a large board uses far too much memory and time to lay out.
+ *
+ * The keyboard cursor is drawn as a single overlay on top of the blocks, so moving it never touches the grid and only
+ * moves one node.
  */
 public class GameBoard extends GridPane {
 
     private static final Logger logger = LogManager.getLogger(GameBoard.class);
 
+    /**
+     * The largest number of blocks drawn as separate GameBlocks
+     */
+    public static final int MAX_BLOCKS = 400;
+
     /**
      * Number of columns in the board
      */
@@ -53,6 +67,16 @@ public class GameBoard extends GridPane {
      */
     GameBlock[][] blocks;
 
+    /**
+     * The single canvas drawing the whole board, when the board is too big for separate blocks
+     */
+    private BoardCanvas canvas;
+
+    /**
+     * The overlay showing the block the keyboard cursor is on, created when the cursor is first shown
+     */
+    private Rectangle cursor;
+
     /**
      * The listener to call when a specific block is clicked
      */
@@ -100,10 +124,10 @@ public class GameBoard extends GridPane {
      * Get a specific block from the GameBoard, specified by it's row and column
      * @param x column
      * @param y row
-     * @return game block at the given column and row
+     * @return game block at the given column and row, or null if the board is drawn on a single canvas
      */
     public GameBlock getBlock(int x, int y) {
-        return blocks[x][y];
+        return blocks == null ? null : blocks[x][y];
     }
 
     public GameBlock[][] getBlocks() {
@@ -119,6 +143,11 @@ public class GameBoard extends GridPane {
         setMaxWidth(width);
         setMaxHeight(height);
 
+        if (cols * rows > MAX_BLOCKS) {
+            buildCanvas();
+            return;
+        }
+
         setGridLinesVisible(true);
 
         blocks = new GameBlock[cols][rows];
@@ -138,6 +167,29 @@ public class GameBoard extends GridPane {
        // fr.play();
     }
 
+    /**
+     * Draw the whole board on a single canvas, working out which block was clicked from the position of the click
+     */
+    private void buildCanvas() {
+        canvas = new BoardCanvas(grid, width, height);
+        add(canvas, 0, 0);
+
+        canvas.setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY) {
+                blockClicked(new GameBlockCoordinate(canvas.getColumnAt(e.getX()), canvas.getRowAt(e.getY())));
+            }
+        });
+    }
+
+    /**
+     * Stop anything the board runs every frame, once it is no longer shown
+     */
+    public void dispose() {
+        if (canvas != null) {
+            canvas.dispose();
+        }
+    }
+
     /**
      * Create a block at the given x and y position in the GameBoard
      * @param x column
@@ -164,7 +216,7 @@ public class GameBoard extends GridPane {
         block.setOnMouseClicked(e -> {
             if (e.getButton() == MouseButton.PRIMARY)
             {
-                blockClicked(e, block);
+                blockClicked(new GameBlockCoordinate(block.getX(), block.getY()));
             }
             else {
                 //Do nothing
@@ -174,6 +226,24 @@ public class GameBoard extends GridPane {
         return block;
     }
 
+    /**
+     * Show the keyboard cursor over the given block
+     * @param x column
+     * @param y row
+     */
+    public void moveCursor(int x, int y) {
+        var blockWidth = width / cols;
+        var blockHeight = height / rows;
+
+        if (cursor == null) {
+            cursor = new Rectangle(blockWidth, blockHeight, Color.rgb(0, 0, 0, 0.5));
+            cursor.setManaged(false);
+            cursor.setMouseTransparent(true);
+            getChildren().add(cursor);
+        }
+        cursor.relocate(x * blockWidth, y * blockHeight);
+    }
+
     /**
      * Set the listener to handle an event when a block is clicked
      * @param listener listener to add
@@ -184,10 +254,9 @@ public class GameBoard extends GridPane {
 
     /**
      * Triggered when a block is clicked. Call the attached listener.
-     * @param event mouse event
-     * @param block block clicked on
+     * @param block position of the block clicked on
      */
-    private void blockClicked(MouseEvent event, GameBlock block) {
+    private void blockClicked(GameBlockCoordinate block) {
         logger.info("Block clicked: {}", block);
 
         if(blockClickedListener != null) {
@@ -195,7 +264,34 @@ public class GameBoard extends GridPane {
         }
     }
 
-    public void setBlockToZero(int x, int y) {
-        grid.set(x, y, 0);
+    /**
+     * Fade out every block removed by a line clear with a single animation
+     * @param cleared the blocks that were cleared
+     */
+    public void fadeOut(ClearedBlocks cleared) {
+        if (canvas != null) {
+            canvas.fadeOut(cleared);
+            return;
+        }
+
+        new AnimationTimer() {
+            double opacity = 1;
+
+            @Override
+            public void handle(long now) {
+                opacity -= 0.02;
+                for (int cell = 0; cell < cleared.size(); cell++) {
+                    GameBlock block = blocks[cleared.getX(cell)][cleared.getY(cell)];
+                    if (opacity > 0) {
+                        block.paintFade(cleared.getValue(cell), opacity);
+                    } else {
+                        block.paint();
+                    }
+                }
+                if (opacity <= 0) {
+                    stop();
+                }
+            }
+        }.start();
     }
 }
@@ -1,6 +1,7 @@
 package uk.ac.soton.comp1206.component;
 
 import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.PieceShape;
 
 public class PieceBoard extends GameBoard {
 
@@ -22,10 +23,11 @@ public class PieceBoard extends GameBoard {
     //Display the piece onto the 3x3 grid
     public void addPieceToGrid(GamePiece piece) {
         clearGrid();
+        int mask = piece.getShape().getMask();
         for (int i = 0; i<blocks.length; i++){
             for (int j = 0; j<blocks[i].length; j++){
                 //grid.set(j, i, 14);
-                if(piece.getBlocks()[j][i] >= 1) {
+                if((mask & (1 << (i * PieceShape.SIZE + j))) != 0) {
                     grid.set(j, i, piece.getValue());
                 }
             } 
@@ -0,0 +1,100 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.game.ClearedBlocks;
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * The Game Event listener receives everything that happens inside a GameEngine. Every method has an empty default, so
+ * a listener only needs to handle the events it is interested in.
+ */
+public interface GameEventListener {
+
+    /**
+     * The current and following pieces have changed, either because a new piece was drawn or the pieces were swapped
+     * @param current the piece to be played
+     * @param following the piece after it
+     */
+    default void piecesChanged(GamePiece current, GamePiece following) {}
+
+    /**
+     * The current piece has been rotated
+     * @param current the rotated piece
+     */
+    default void pieceRotated(GamePiece current) {}
+
+    /**
+     * A piece has been placed on the grid
+     * @param piece the piece that was placed
+     * @param x column the piece was centred on
+     * @param y row the piece was centred on
+     */
+    default void piecePlaced(GamePiece piece, int x, int y) {}
+
+    /**
+     * A piece could not be placed at the requested position
+     * @param piece the piece that was attempted
+     * @param x column
+     * @param y row
+     */
+    default void placementFailed(GamePiece piece, int x, int y) {}
+
+    /**
+     * One or more lines were completed by the last placement
+     * @param lines number of lines cleared
+     * @param blocks number of unique blocks cleared
+     */
+    default void linesCleared(int lines, int blocks) {}
+
+    /**
+     * The blocks of the completed lines have been cleared from the grid
+     * @param cleared every block that was cleared, with the full rows and columns
+     */
+    default void blocksCleared(ClearedBlocks cleared) {}
+
+    /**
+     * The score has changed
+     * @param score the new score
+     */
+    default void scoreChanged(int score) {}
+
+    /**
+     * The level has changed
+     * @param level the new level
+     */
+    default void levelChanged(int level) {}
+
+    /**
+     * The number of lives has changed
+     * @param lives the new number of lives
+     */
+    default void livesChanged(int lives) {}
+
+    /**
+     * The multiplier has changed
+     * @param multiplier the new multiplier
+     */
+    default void multiplierChanged(int multiplier) {}
+
+    /**
+     * The keyboard cursor has moved
+     * @param x the column it is now on
+     * @param y the row it is now on
+     */
+    default void cursorMoved(int x, int y) {}
+
+    /**
+     * The placement timer has been restarted
+     * @param delay milliseconds until the timer next runs out
+     */
+    default void timerReset(long delay) {}
+
+    /**
+     * The timer ran out before a piece was placed and a life was lost
+     */
+    default void lifeLost() {}
+
+    /**
+     * The game has ended
+     */
+    default void gameOver() {}
+}
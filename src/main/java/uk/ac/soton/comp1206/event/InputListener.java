@@ -0,0 +1,27 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.Input;
+
+/**
+ * The InputListener is told about every input a GameEngine receives, in order, along with the time on the engine's
+ * clock when it arrived. Together with the engine's size and seed this is everything needed to play the game again.
+ */
+public interface InputListener {
+
+    /**
+     * Called when the engine starts, before the first pieces are drawn
+     * @param engine the engine
+     * @param time the time on the engine's clock
+     */
+    void started(GameEngine engine, long time);
+
+    /**
+     * Called for every input the engine receives
+     * @param input the kind of input
+     * @param x column of the block, or 0 if the input has no position
+     * @param y row of the block, or 0 if the input has no position
+     * @param time the time on the engine's clock
+     */
+    void inputReceived(Input input, int x, int y, long time);
+}
@@ -35,13 +35,19 @@ public class Multimedia {
         return scoreFile;
     }
 
-    public static String getScoreFolder() {
-        String scoreFolder = Multimedia.class.getResource("/" + scoresFolder).toExternalForm();
-
-        return scoreFolder;
+    /**
+     * Turn all sound effects on or off, used to run the game without audio
+     * @param enabled true to play sounds
+     */
+    public static void setAudioEnabled(boolean enabled) {
+        audioEnabled = enabled;
     }
 
     public void playSounds(String file) {
+        if (!audioEnabled) {
+            return;
+        }
+
         String toPlay = Multimedia.class.getResource("/" + soundFolder + file).toExternalForm();
         if (toPlay == null) {
             logger.error("Audio resource not found: /" + musicFolder + file);
@@ -93,6 +99,8 @@ public class Multimedia {
     }
 
     public static void stopBackgroundMusic() {
-        musicPlayer.stop();
+        if (musicPlayer != null) {
+            musicPlayer.stop();
+        }
     }
 }
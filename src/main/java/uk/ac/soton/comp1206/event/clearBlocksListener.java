@@ -1,7 +1,7 @@
 package uk.ac.soton.comp1206.event;
 
-import javafx.util.Pair;
+import uk.ac.soton.comp1206.game.ClearedBlocks;
 
 public interface clearBlocksListener {
-    public void blocksCleared(Pair<Integer, Integer> cor);
+    public void blocksCleared(ClearedBlocks cleared);
 }
@@ -0,0 +1,5 @@
+package uk.ac.soton.comp1206.event;
+
+public interface cursorMoveListener {
+    public void cursorMoved(int x, int y);
+}
@@ -0,0 +1,13 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * Listens for the scores from a score source changing
+ */
+public interface scoresUpdateListener {
+
+    /**
+     * Handle the scores changing
+     * @param from the first position, counting from 0, whose score changed. Scores above it are as they were.
+     */
+    public void scoresUpdated(long from);
+}
@@ -0,0 +1,5 @@
+package uk.ac.soton.comp1206.event;
+
+public interface timerResetListener {
+    public void timerReset(long remaining);
+}
@@ -0,0 +1,274 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A ChangeSet is an immutable record of everything a batch of game commands changed, published by the logic thread
+ * for the UI to apply in one go on its next pulse.
+ *
+ * It holds every block changed, in order, along with the latest score, level, lives, multiplier, pieces and cursor,
+ * and the events the UI reacts to. Values which did not change are -1.
+ */
+public class ChangeSet {
+
+    /**
+     * The index (y * cols + x) and new value of every block changed, in order
+     */
+    private final int[] cells, values;
+
+    private final int score, level, lives, multiplier;
+
+    /**
+     * The current and following pieces as piece * 4 + rotation
+     */
+    private final int current, following;
+
+    /**
+     * True if a new piece arrived or the pieces were swapped, false if the current piece was only rotated
+     */
+    private final boolean piecesChanged;
+
+    private final int cursorX, cursorY;
+
+    private final List<ClearedBlocks> cleared;
+
+    /**
+     * The time left when the timer last restarted and the delay it restarted with
+     */
+    private final long remaining, delay;
+
+    private final boolean highScore, gameOver;
+
+    private ChangeSet(Builder builder) {
+        this.cells = Arrays.copyOf(builder.cells, builder.size);
+        this.values = Arrays.copyOf(builder.values, builder.size);
+        this.score = builder.score;
+        this.level = builder.level;
+        this.lives = builder.lives;
+        this.multiplier = builder.multiplier;
+        this.current = builder.current;
+        this.following = builder.following;
+        this.piecesChanged = builder.piecesChanged;
+        this.cursorX = builder.cursorX;
+        this.cursorY = builder.cursorY;
+        this.cleared = builder.cleared.isEmpty()
+            ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(builder.cleared));
+        this.remaining = builder.remaining;
+        this.delay = builder.delay;
+        this.highScore = builder.highScore;
+        this.gameOver = builder.gameOver;
+    }
+
+    /**
+     * Copy every changed block into a grid
+     * @param grid a grid the same size as the game's
+     */
+    public void applyTo(Grid grid) {
+        int cols = grid.getCols();
+        for (int i = 0; i < cells.length; i++) {
+            grid.set(cells[i] % cols, cells[i] / cols, values[i]);
+        }
+    }
+
+    /**
+     * Get the number of blocks changed
+     * @return number of block changes
+     */
+    public int getCellChanges() {
+        return cells.length;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getLives() {
+        return lives;
+    }
+
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * Get the current piece, if the pieces changed or the current piece was rotated
+     * @return a new piece, or null if neither changed
+     */
+    public GamePiece getCurrentPiece() {
+        return current < 0 ? null : GamePiece.createPiece(current >> 2, current & 3);
+    }
+
+    /**
+     * Get the following piece, if the pieces changed or the current piece was rotated
+     * @return a new piece, or null if neither changed
+     */
+    public GamePiece getFollowingPiece() {
+        return following < 0 ? null : GamePiece.createPiece(following >> 2, following & 3);
+    }
+
+    public boolean isPiecesChanged() {
+        return piecesChanged;
+    }
+
+    public int getCursorX() {
+        return cursorX;
+    }
+
+    public int getCursorY() {
+        return cursorY;
+    }
+
+    /**
+     * Get every line clear, in order
+     * @return the clears
+     */
+    public List<ClearedBlocks> getCleared() {
+        return cleared;
+    }
+
+    /**
+     * Get the time that was left when the timer last restarted
+     * @return time left in milliseconds, or -1 if the timer did not restart
+     */
+    public long getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * Get the delay the timer last restarted with
+     * @return delay in milliseconds, or -1 if the timer did not restart
+     */
+    public long getDelay() {
+        return delay;
+    }
+
+    public boolean isHighScore() {
+        return highScore;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Collects changes on the logic thread until they are published. Reused for every batch.
+     */
+    static class Builder {
+
+        private int[] cells = new int[64];
+        private int[] values = new int[64];
+        private int size;
+
+        private int score, level, lives, multiplier;
+        private int current, following;
+        private boolean piecesChanged;
+        private int cursorX, cursorY;
+        private final List<ClearedBlocks> cleared = new ArrayList<>();
+        private long remaining, delay;
+        private boolean highScore, gameOver;
+
+        private boolean empty;
+
+        Builder() {
+            reset();
+        }
+
+        void cell(int index, int value) {
+            if (size == cells.length) {
+                cells = Arrays.copyOf(cells, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            cells[size] = index;
+            values[size] = value;
+            size++;
+            empty = false;
+        }
+
+        void score(int value) {
+            score = value;
+            empty = false;
+        }
+
+        void level(int value) {
+            level = value;
+            empty = false;
+        }
+
+        void lives(int value) {
+            lives = value;
+            empty = false;
+        }
+
+        void multiplier(int value) {
+            multiplier = value;
+            empty = false;
+        }
+
+        void pieces(GamePiece current, GamePiece following, boolean changed) {
+            this.current = current.getPiece() * 4 + current.getRotation();
+            this.following = following.getPiece() * 4 + following.getRotation();
+            piecesChanged |= changed;
+            empty = false;
+        }
+
+        void cursor(int x, int y) {
+            cursorX = x;
+            cursorY = y;
+            empty = false;
+        }
+
+        void cleared(ClearedBlocks blocks) {
+            cleared.add(blocks);
+            empty = false;
+        }
+
+        void timerReset(long remaining, long delay) {
+            this.remaining = remaining;
+            this.delay = delay;
+            empty = false;
+        }
+
+        void highScore() {
+            highScore = true;
+            empty = false;
+        }
+
+        void gameOver() {
+            gameOver = true;
+            empty = false;
+        }
+
+        boolean isEmpty() {
+            return empty;
+        }
+
+        /**
+         * Build a change set of everything collected and start collecting again
+         * @return the change set
+         */
+        ChangeSet build() {
+            ChangeSet changes = new ChangeSet(this);
+            reset();
+            return changes;
+        }
+
+        private void reset() {
+            size = 0;
+            score = level = lives = multiplier = -1;
+            current = following = -1;
+            piecesChanged = false;
+            cursorX = cursorY = -1;
+            cleared.clear();
+            remaining = delay = -1;
+            highScore = gameOver = false;
+            empty = true;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * ClearedBlocks is an immutable record of everything removed by a single line clear: the full rows and columns as
+ * masks, and every cleared block with the value it held before it was cleared.
+ *
+ * It is a copy of the Grid's reusable clear masks, so it is safe to hand to another thread, for example to animate
+ * the whole clear in one go on the UI thread.
+ */
+public class ClearedBlocks {
+
+    /**
+     * The full rows, bit (y % 64) of word (y / 64)
+     */
+    private final long[] rows;
+
+    /**
+     * The full columns, bit (x % 64) of word (x / 64)
+     */
+    private final long[] cols;
+
+    /**
+     * The column, row and previous value of each cleared block
+     */
+    private final int[] cellX, cellY, values;
+
+    /**
+     * The number of lines cleared
+     */
+    private final int lines;
+
+    /**
+     * Copy the last clear out of the given grid. Must be called before the cleared blocks are emptied.
+     * @param grid the grid the clear happened in
+     */
+    ClearedBlocks(Grid grid) {
+        this.rows = grid.getClearedRows().clone();
+        this.cols = grid.getClearedCols().clone();
+        this.lines = grid.getLinesCleared();
+
+        int count = grid.getBlocksCleared();
+        cellX = new int[count];
+        cellY = new int[count];
+        values = new int[count];
+
+        long[] cells = grid.getClearedCells();
+        int words = grid.getWordsPerRow();
+        int cell = 0;
+        for (int y = 0; y < grid.getRows(); y++) {
+            for (int w = 0; w < words; w++) {
+                long bits = cells[y * words + w];
+                while (bits != 0) {
+                    int x = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    cellX[cell] = x;
+                    cellY[cell] = y;
+                    values[cell] = grid.get(x, y);
+                    cell++;
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of lines cleared
+     * @return number of full rows and columns
+     */
+    public int getLines() {
+        return lines;
+    }
+
+    /**
+     * Get the number of blocks cleared
+     * @return number of unique blocks
+     */
+    public int size() {
+        return cellX.length;
+    }
+
+    /**
+     * Get the column of a cleared block
+     * @param cell index of the block
+     * @return column
+     */
+    public int getX(int cell) {
+        return cellX[cell];
+    }
+
+    /**
+     * Get the row of a cleared block
+     * @param cell index of the block
+     * @return row
+     */
+    public int getY(int cell) {
+        return cellY[cell];
+    }
+
+    /**
+     * Get the value a cleared block held before it was cleared
+     * @param cell index of the block
+     * @return previous value
+     */
+    public int getValue(int cell) {
+        return values[cell];
+    }
+
+    /**
+     * Check whether a row was cleared
+     * @param y row
+     * @return true if the row was full
+     */
+    public boolean isRowCleared(int y) {
+        return (y >>> 6) < rows.length && (rows[y >>> 6] & (1L << y)) != 0;
+    }
+
+    /**
+     * Check whether a column was cleared
+     * @param x column
+     * @return true if the column was full
+     */
+    public boolean isColumnCleared(int x) {
+        return (x >>> 6) < cols.length && (cols[x >>> 6] & (1L << x)) != 0;
+    }
+}
@@ -0,0 +1,166 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * An EngineState is an immutable copy of everything needed to put a GameEngine back exactly as it was: the blocks of
+ * the grid, the current and following pieces, the score, level, lives and multiplier, the cursor, the timer and the
+ * state of the piece generator.
+ *
+ * States are taken with GameEngine.saveState and put back with GameEngine.restoreState.
+ */
+public class EngineState {
+
+    private final int cols;
+    private final int rows;
+    private final int[] values;
+    private final int currentPiece, currentRotation;
+    private final int followingPiece, followingRotation;
+    private final int score;
+    private final int level;
+    private final int lives;
+    private final int multiplier;
+    private final int cursorX, cursorY;
+    private final long time;
+    private final long deadline;
+    private final long randomState;
+    private final boolean started;
+    private final boolean over;
+
+    /**
+     * Create a new state. Used by GameEngine and when reading a saved state back.
+     */
+    EngineState(int cols, int rows, int[] values, int currentPiece, int currentRotation, int followingPiece,
+                int followingRotation, int score, int level, int lives, int multiplier, int cursorX, int cursorY,
+                long time, long deadline, long randomState, boolean started, boolean over) {
+        if (values.length != cols * rows) {
+            throw new IllegalArgumentException("Expected " + cols * rows + " blocks but got " + values.length);
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.values = values;
+        this.currentPiece = currentPiece;
+        this.currentRotation = currentRotation;
+        this.followingPiece = followingPiece;
+        this.followingRotation = followingRotation;
+        this.score = score;
+        this.level = level;
+        this.lives = lives;
+        this.multiplier = multiplier;
+        this.cursorX = cursorX;
+        this.cursorY = cursorY;
+        this.time = time;
+        this.deadline = deadline;
+        this.randomState = randomState;
+        this.started = started;
+        this.over = over;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the value of a block
+     * @param x column
+     * @param y row
+     * @return value
+     */
+    public int getValue(int x, int y) {
+        return values[y * cols + x];
+    }
+
+    /**
+     * Get the values of every block, indexed by y * cols + x. The array is shared and must not be modified.
+     * @return values
+     */
+    int[] getValues() {
+        return values;
+    }
+
+    /**
+     * Get the current piece, or -1 if the game had not started
+     * @return piece number
+     */
+    public int getCurrentPiece() {
+        return currentPiece;
+    }
+
+    public int getCurrentRotation() {
+        return currentRotation;
+    }
+
+    /**
+     * Get the following piece, or -1 if the game had not started
+     * @return piece number
+     */
+    public int getFollowingPiece() {
+        return followingPiece;
+    }
+
+    public int getFollowingRotation() {
+        return followingRotation;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getLives() {
+        return lives;
+    }
+
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    public int getCursorX() {
+        return cursorX;
+    }
+
+    public int getCursorY() {
+        return cursorY;
+    }
+
+    /**
+     * Get the time on the engine's clock when the state was saved
+     * @return time in clock milliseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Get the time at which the current piece was due to run out
+     * @return deadline in clock milliseconds
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Get the time left on the timer when the state was saved
+     * @return remaining time in milliseconds
+     */
+    public long getRemaining() {
+        return Math.max(0, deadline - time);
+    }
+
+    public long getRandomState() {
+        return randomState;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public boolean isOver() {
+        return over;
+    }
+}
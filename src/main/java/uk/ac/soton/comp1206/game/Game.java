@@ -1,16 +1,13 @@
 package uk.ac.soton.comp1206.game;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Random;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -18,20 +15,31 @@ import org.apache.logging.log4j.Logger;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
-import javafx.util.Pair;
 import uk.ac.soton.comp1206.component.GameBlock;
+import uk.ac.soton.comp1206.event.GameEventListener;
 import uk.ac.soton.comp1206.event.Multimedia;
 import uk.ac.soton.comp1206.event.NextPieceListener;
 import uk.ac.soton.comp1206.event.clearBlocksListener;
+import uk.ac.soton.comp1206.event.cursorMoveListener;
 import uk.ac.soton.comp1206.event.delayChangeListener;
 import uk.ac.soton.comp1206.event.gameOverListener;
 import uk.ac.soton.comp1206.event.highScoreListener;
 import uk.ac.soton.comp1206.event.rotatePieceListener;
+import uk.ac.soton.comp1206.event.timerResetListener;
+import uk.ac.soton.comp1206.replay.ReplayRecorder;
+import uk.ac.soton.comp1206.scores.ScoreRepository;
 
 /**
- * The Game class handles the main logic, state and properties of the TetrECS
- * game. Methods to manipulate the game state
- * and to handle actions made by the player should take place inside this class.
+ * The Game class connects a headless GameEngine to the UI. Actions made by the
+ * player are passed to the engine, and the events coming back are turned into
+ * properties, sounds and listener callbacks for the scenes. The rules of the
+ * game themselves live in the GameEngine.
+ *
+ * Every action runs as a command on the game's own logic thread, so the engine
+ * is only ever touched by one thread however many are sending it input. The
+ * changes made by each batch of commands are published as an immutable
+ * ChangeSet, and applied to the grid, properties and listeners here on the UI
+ * thread when pulse is called, once per frame.
  */
 public class Game {
 
@@ -41,22 +49,28 @@ public class Game {
     private List<highScoreListener> listenerHighScore = new ArrayList<highScoreListener>();
     private List<delayChangeListener> listenerDelayChange = new ArrayList<delayChangeListener>();
     private List<clearBlocksListener> listenerBlocksCleared = new ArrayList<clearBlocksListener>();
+    private List<timerResetListener> listenerTimerReset = new ArrayList<timerResetListener>();
+    private List<cursorMoveListener> listenerCursorMove = new ArrayList<cursorMoveListener>();
 
     private static final Logger logger = LogManager.getLogger(Game.class);
 
-    Random rand = new Random();
-
-    GamePiece currentPiece;
-    GamePiece followingPiece = GamePiece.createPiece(5);
-
-    public boolean temp = false;
+    /**
+     * True if the last placement succeeded
+     */
+    public volatile boolean temp = false;
 
     Multimedia sound = new Multimedia();
 
     private IntegerProperty score = new SimpleIntegerProperty(0);
     private SimpleDoubleProperty level = new SimpleDoubleProperty(0.0);
-    private IntegerProperty lives = new SimpleIntegerProperty(3);
+    private IntegerProperty lives = new SimpleIntegerProperty(GameEngine.STARTING_LIVES);
     private IntegerProperty multipliyer = new SimpleIntegerProperty(0);
+    private SimpleDoubleProperty delay = new SimpleDoubleProperty(-1);
+
+    /**
+     * The block the keyboard cursor is on, as of the last pulse
+     */
+    private int cursorX = 0, cursorY = 0;
 
     public IntegerProperty score() {
         return score;
@@ -66,10 +80,6 @@ public class Game {
         return score().get();
     }
 
-    public void setScore(int value) {
-        score.set(score.get() + value);
-    }
-
     public SimpleDoubleProperty level() {
         return level;
     }
@@ -78,10 +88,6 @@ public class Game {
         return level().get();
     }
 
-    public void setLevel(double value) {
-        level.set(value);
-    }
-
     public IntegerProperty lives() {
         return lives;
     }
@@ -90,10 +96,6 @@ public class Game {
         return lives().get();
     }
 
-    public void setLives(int value) {
-        lives.set(lives.get() - value);
-    }
-
     public IntegerProperty multipliyer() {
         return multipliyer;
     }
@@ -102,14 +104,6 @@ public class Game {
         return multipliyer().get();
     }
 
-    public void setMultipliyer(int value) {
-        multipliyer.set(multipliyer.get() + value);
-    }
-
-    public void resetMultipliyer(int value) {
-        multipliyer.set(value);
-    }
-
     /**
      * Number of rows
      */
@@ -121,10 +115,42 @@ public class Game {
     protected final int cols;
 
     /**
-     * The grid model linked to the game
+     * The engine running the rules of this game
+     */
+    protected final GameEngine engine;
+
+    /**
+     * The grid shown by the UI, a copy of the engine's grid updated on every
+     * pulse
      */
     protected final Grid grid;
 
+    /**
+     * Runs every command for this game
+     */
+    private final LogicExecutor logic;
+
+    /**
+     * The changes made by the commands run since the last batch, only used on
+     * the logic thread
+     */
+    private final ChangeSet.Builder pending = new ChangeSet.Builder();
+
+    /**
+     * Change sets published by the logic thread and not yet applied
+     */
+    private final MpscQueue<ChangeSet> published = new MpscQueue<>();
+
+    /**
+     * Records every input to the game so it can be replayed
+     */
+    protected final ReplayRecorder recorder;
+
+    /**
+     * The file the game is saved to after every placement, or null to not save
+     */
+    private File autosave;
+
     /**
      * Create a new game with the specified rows and columns. Creates a
      * corresponding grid model.
@@ -133,128 +159,338 @@ public class Game {
      * @param rows number of rows
      */
     public Game(int cols, int rows) {
+        this(cols, rows, new GameRandom());
+    }
+
+    /**
+     * Create a new game with the specified rows and columns whose pieces are
+     * drawn from the given seed. Games with the same seed get the same pieces.
+     *
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param seed seed for the pieces
+     */
+    public Game(int cols, int rows, long seed) {
+        this(cols, rows, new GameRandom(seed));
+    }
+
+    private Game(int cols, int rows, GameRandom random) {
         this.cols = cols;
         this.rows = rows;
 
-        // Create a new grid model to represent the game state
+        // Create a new engine and use its grid model to represent the game state
+        this.engine = new GameEngine(cols, rows, GameClock.SYSTEM, random);
+        this.engine.addListener(new EngineListener());
+        this.recorder = new ReplayRecorder(engine);
+        this.logic = new LogicExecutor("Game Logic", this::publish);
+
+        // The UI sees its own copy of the grid, kept up to date by change sets
         this.grid = new Grid(cols, rows);
+        engine.getGrid().setChangeLog(pending);
     }
 
-    public SimpleDoubleProperty getTimerDelay() {
-        Double delayValue = Math.max(2500, 12000 - 500 * getLevel());
-        SimpleDoubleProperty delay = new SimpleDoubleProperty(delayValue);
-        receiveDelay(delay);
+    /**
+     * Turns events from the engine into sounds and changes to publish to the
+     * UI. Called on the logic thread.
+     */
+    private class EngineListener implements GameEventListener {
 
-        return delay;
-    }
+        @Override
+        public void piecesChanged(GamePiece current, GamePiece following) {
+            logger.info("Current piece: {}", current);
+            logger.info("Following piece: {}", following);
+            pending.pieces(current, following, true);
+        }
 
-    public Timer timer = new Timer();
+        @Override
+        public void pieceRotated(GamePiece current) {
+            pending.pieces(current, engine.getFollowingPiece(), false);
+        }
 
-    public int getHighScore() throws NumberFormatException, IOException {
-        String getFolder = Multimedia.getScoreFolder();
-        File newFile = new File((getFolder + "scores.txt").substring(5));
+        @Override
+        public void piecePlaced(GamePiece piece, int x, int y) {
+            logger.info("Placed {} at x:{}, y:{}", piece, x, y);
+            sound.playSounds("place.wav");
+        }
 
-        ArrayList<Pair<String, Integer>> highScores = new ArrayList<>();
+        @Override
+        public void placementFailed(GamePiece piece, int x, int y) {
+            logger.info("BLOCK OCCUPIED! Pick an available slot.");
+            sound.playSounds("fail.wav");
+        }
+
+        @Override
+        public void linesCleared(int lines, int blocks) {
+            sound.playSounds("clear.wav");
+        }
+
+        @Override
+        public void blocksCleared(ClearedBlocks cleared) {
+            pending.cleared(cleared);
+        }
 
-        FileReader fileReader = new FileReader(newFile);
-        if (newFile.exists()) {
-            try (BufferedReader bufferedReader = new BufferedReader(fileReader)) {
-                String line;
-                while ((line = bufferedReader.readLine()) != null) {
-                    String nameScore[] = line.split(":");
-                    String name = nameScore[0];
-                    String score = nameScore[1];
-                    Pair<String, Integer> scorePair = new Pair<>(name, Integer.parseInt(score));
-                    highScores.add(scorePair);
-                }
+        @Override
+        public void scoreChanged(int value) {
+            if (value > getHighScore()) {
+                pending.highScore(); // inform listener
             }
+            pending.score(value);
+        }
 
-            sortScores(highScores);
+        @Override
+        public void levelChanged(int value) {
+            pending.level(value);
+            sound.playSounds("level.wav");
+        }
 
-            return highScores.get(0).getValue();
-        } else {
-            // if file doesn exist, create one and write some default scores
-            newFile.createNewFile();
+        @Override
+        public void livesChanged(int value) {
+            pending.lives(value);
+        }
 
-            try {
-                FileWriter fr = new FileWriter(newFile);
-                fr.write("Jhon:30\nSarah:20\nTim:40"); // TODO: Test this, i dont think its creating it
-                fr.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+        @Override
+        public void multiplierChanged(int value) {
+            pending.multiplier(value);
+        }
+
+        @Override
+        public void cursorMoved(int x, int y) {
+            pending.cursor(x, y);
+        }
+
+        @Override
+        public void timerReset(long remaining) {
+            startTimer();
+            pending.timerReset(remaining, engine.getTimerDelay());
+        }
+
+        @Override
+        public void lifeLost() {
+            sound.playSounds("lifelose.wav");
+        }
+
+        @Override
+        public void gameOver() {
+            Multimedia.stopBackgroundMusic();
+            sound.playSounds("explode.wav");
+            stop();
+            saveReplay();
+            if (autosave != null) {
+                autosave.delete();
             }
+            pending.gameOver();
         }
+    }
 
-        return 0;
+    /**
+     * Publish everything changed by the last batch of commands. Called on the
+     * logic thread.
+     */
+    private void publish() {
+        if (!pending.isEmpty()) {
+            published.offer(pending.build());
+        }
     }
 
-    public void sortScores(ArrayList<Pair<String, Integer>> scoreList) {
-        scoreList.sort(new Comparator<Pair<String, Integer>>() {
-            @Override
-            public int compare(Pair<String, Integer> o1, Pair<String, Integer> o2) {
-                if (o1.getValue() > o2.getValue()) {
-                    return -1;
-                } else if (o1.getValue().equals(o2.getValue())) {
-                    return 0;
-                } else {
-                    return 1;
-                }
-            }
-        });
+    /**
+     * Apply every change published since the last pulse to the grid and
+     * properties, and call the listeners. Must be called on the UI thread,
+     * once per frame.
+     */
+    public void pulse() {
+        ChangeSet changes;
+        while ((changes = published.poll()) != null) {
+            apply(changes);
+        }
     }
 
-    public void gameLoop() {
+    private void apply(ChangeSet changes) {
+        changes.applyTo(grid);
 
-        if (getLives() == 0) {
-            Multimedia.stopBackgroundMusic();
-            sound.playSounds("explode.wav");
-            timer.cancel();
+        if (changes.isHighScore()) {
+            receiveHighScore();
+        }
+        if (changes.getScore() >= 0) {
+            score.set(changes.getScore());
+        }
+        if (changes.getLevel() >= 0) {
+            level.set(changes.getLevel());
+        }
+        if (changes.getLives() >= 0) {
+            lives.set(changes.getLives());
+        }
+        if (changes.getMultiplier() >= 0) {
+            multipliyer.set(changes.getMultiplier());
+        }
+
+        GamePiece current = changes.getCurrentPiece();
+        if (current != null) {
+            if (changes.isPiecesChanged()) {
+                receive(changes.getFollowingPiece(), current);
+            } else {
+                receive2(current); // feed listener generated new roatetd piece in 3x3 view
+            }
+        }
+
+        if (changes.getCursorX() >= 0) {
+            cursorX = changes.getCursorX();
+            cursorY = changes.getCursorY();
+            receiveCursorMove(cursorX, cursorY);
+        }
+
+        for (ClearedBlocks cleared : changes.getCleared()) {
+            receiveClearedBlocks(cleared);
+        }
+
+        if (changes.getDelay() >= 0) {
+            setTimerDelay(changes.getDelay());
+            receiveTimerReset(changes.getRemaining());
+        }
+
+        if (changes.isGameOver()) {
             receiveGameover();
         }
+    }
 
-        resetMultipliyer(1);
-        sound.playSounds("lifelose.wav");
-        setLives(1);
-        nextPiece();
+    /**
+     * Run a command on the game's logic thread, after every command already
+     * sent. Commands sent from the logic thread run straight away.
+     *
+     * @param command the command
+     */
+    public void execute(Runnable command) {
+        logic.execute(command);
+    }
+
+    /**
+     * Save the replay of this game into the replays folder in the data folder,
+     * next to the scores
+     */
+    private void saveReplay() {
+        if (recorder.size() == 0) {
+            // Resumed games are not recorded
+            return;
+        }
+
+        File folder = new File(ScoreRepository.getDataFolder(), "replays");
+        File file = new File(folder, "replay-" + System.currentTimeMillis() + ".trp");
+        try {
+            folder.mkdirs();
+            recorder.write(file.toPath());
+            logger.info("Saved replay of {} bytes to {}", recorder.size(), file);
+        } catch (IOException e) {
+            logger.error("Could not save replay", e);
+        }
+    }
+
+    /**
+     * Get the recorder holding the replay of this game
+     *
+     * @return replay recorder
+     */
+    public ReplayRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Get the time allowed to place a piece, as last published to the UI
+     *
+     * @return the timer delay in milliseconds
+     */
+    public SimpleDoubleProperty getTimerDelay() {
+        return delay;
+    }
+
+    /**
+     * Update the timer delay. The delay listeners are only told when it
+     * changes, which happens when the level changes.
+     */
+    private void setTimerDelay(double delayValue) {
+        if (delay.get() != delayValue) {
+            delay.set(delayValue);
+            receiveDelay(delay);
+        }
+    }
+
+    /**
+     * The game loop waiting for the current piece to run out, or null if the
+     * game is not running
+     */
+    private ScheduledFuture<?> loop;
+
+    /**
+     * Get the best score so far, from the scores held in memory
+     *
+     * @return high score
+     */
+    public int getHighScore() {
+        return ScoreRepository.getDefault().getHighScore();
+    }
+
+    public void gameLoop() {
+        // A run out timer restarts itself through the engine
+        if (!engine.tick() && !engine.isGameOver()) {
+            scheduleLoop();
+        }
     }
 
     public void startTimer() {
-        timer.cancel();
-        timer = new Timer();
-        TimerTask task = new TimerTask() {
-            public void run() {
-                gameLoop();
+        scheduleLoop();
+    }
+
+    /**
+     * Schedule the game loop to run on the logic thread when the engine's
+     * timer runs out, in place of the one already waiting
+     */
+    private synchronized void scheduleLoop() {
+        if (loop != null) {
+            loop.cancel(false);
+        }
+        long delay = engine.getDeadline() - engine.getClock().millis();
+        loop = GameScheduler.schedule(() -> logic.execute(this::gameLoop), delay);
+    }
+
+    /**
+     * Stop the game timer and the logic thread once every command already
+     * sent has run, used when leaving the game
+     */
+    public void stop() {
+        synchronized (this) {
+            if (loop != null) {
+                loop.cancel(false);
+                loop = null;
             }
-        };
-        long delay = (long) getTimerDelay().get();
-        timer.scheduleAtFixedRate(task, delay, delay);
+        }
+        logic.shutdown();
     }
 
     public void rotateCurrentPiece() {
-        logger.info("Piece: {} rotated.", currentPiece.getValue());
+        execute(() -> {
+            logger.info("Piece: {} rotated.", engine.getCurrentPiece());
 
-        sound.playSounds("rotate.wav");
+            sound.playSounds("rotate.wav");
 
-        currentPiece.rotate();
-        receive2(currentPiece); // feed listener generated new roatetd piece in 3x3 view
+            engine.rotate();
+        });
     }
 
     public void rotateCurrentPieceLeft() {
-        logger.info("Piece: {} rotated left.", currentPiece.getValue());
+        execute(() -> {
+            logger.info("Piece: {} rotated left.", engine.getCurrentPiece());
 
-        sound.playSounds("rotate.wav");
+            sound.playSounds("rotate.wav");
 
-        currentPiece.rotateLeft();
-        receive2(currentPiece);
+            engine.rotateLeft();
+        });
     }
 
     public void setOnClear(clearBlocksListener listener) {
         this.listenerBlocksCleared.add(listener);
     }
 
-    public void receiveClearedBlocks(Pair<Integer, Integer> cor) {
+    public void receiveClearedBlocks(ClearedBlocks cleared) {
         for (clearBlocksListener listener : listenerBlocksCleared) {
-            listener.blocksCleared(cor);
+            listener.blocksCleared(cleared);
         }
     }
 
@@ -269,6 +505,28 @@ public class Game {
         }
     }
 
+    // Listener for the timer restarting with a new piece
+    public void setOnTimerReset(timerResetListener listener) {
+        this.listenerTimerReset.add(listener);
+    }
+
+    private void receiveTimerReset(long remaining) {
+        for (timerResetListener listener : listenerTimerReset) {
+            listener.timerReset(remaining);
+        }
+    }
+
+    // Listener for the keyboard cursor moving
+    public void setOnCursorMove(cursorMoveListener listener) {
+        this.listenerCursorMove.add(listener);
+    }
+
+    private void receiveCursorMove(int x, int y) {
+        for (cursorMoveListener listener : listenerCursorMove) {
+            listener.cursorMoved(x, y);
+        }
+    }
+
     // Listener for updating current high score
     public void setOnHighScore(highScoreListener listener) {
         this.listenerHighScore.add(listener);
@@ -317,83 +575,107 @@ public class Game {
         }
     }
 
-    public void updateLevel() {
-        double lvlRound = Math.floor(((getScore() / 1000) * 1000) / 1000);
-        setLevel(lvlRound);
-        sound.playSounds("level.wav");
-    }
-
-    public void score(int numOfBlocks, int numOfLines) {
-
-        try {
-            if (getScore() > getHighScore()) {
-                receiveHighScore(); // inform listener
-            }
-        } catch (NumberFormatException | IOException e) {
-            e.printStackTrace();
-        }
-
-        int scoreUpdate = numOfLines * numOfBlocks * 10 * getMultipliyer();
+    public void swapCurrentPiece() {
+        execute(() -> {
+            logger.info("Piece board clicked: swapping pieces");
 
-        if (scoreUpdate == 0) {
-            scoreUpdate = 1;
-        } else {
-            setScore(scoreUpdate);
-            updateLevel();
-        }
+            sound.playSounds("rotate.wav");
 
+            engine.swap();
+        });
     }
 
-    public GamePiece spawnPiece() {
-        int value = rand.nextInt(15);
-
-        GamePiece newPiece = GamePiece.createPiece(value);
-
-        // logger.info("Current piece: {}", newPiece.toString());
+    /**
+     * Start the game
+     */
+    public void start() {
+        logger.info("Starting game");
 
-        receive(newPiece, followingPiece); // feed listener generated piece
-        return newPiece;
+        execute(this::initialiseGame);
     }
 
-    public void nextPiece() {
-        logger.info("Current piece: {}", currentPiece);
-        logger.info("Following piece: {}", followingPiece);
+    /**
+     * Initialise a new game and set up anything that needs to be done at the start
+     */
+    public void initialiseGame() {
+        logger.info("Initialising game");
 
-        currentPiece = followingPiece;
-        followingPiece = spawnPiece();
+        engine.start();
     }
 
-    public void swapCurrentPiece() {
-        logger.info("Piece board clicked: swapping pieces");
-
-        sound.playSounds("rotate.wav");
+    /**
+     * Continue a saved game instead of starting a new one. A replay can only
+     * be played back from the seed and an empty board, so a resumed game is
+     * not recorded and no replay is saved for it.
+     *
+     * @param snapshot the saved game, from saveSnapshot
+     * @throws IOException if the snapshot is not valid for this game
+     */
+    public void resume(byte[] snapshot) throws IOException {
+        logger.info("Resuming game");
 
-        GamePiece temp = followingPiece;
-        followingPiece = currentPiece;
-        currentPiece = temp;
-        receive(followingPiece, currentPiece);
+        EngineState state = GameSnapshot.read(snapshot, engine.getClock().millis());
+        if (state.getCols() != cols || state.getRows() != rows) {
+            throw new IOException("Snapshot is for a " + state.getCols() + "x" + state.getRows() + " game");
+        }
+        execute(() -> {
+            recorder.stop();
+            engine.restoreState(state);
+        });
     }
 
     /**
-     * Start the game
+     * Save the complete state of the game, including the time left on the
+     * timer, into a small binary snapshot. Must be called on the logic thread,
+     * or once the game has stopped.
+     *
+     * @return the snapshot
      */
-    public void start() {
-        logger.info("Starting game");
+    public byte[] saveSnapshot() {
+        return GameSnapshot.write(engine.saveState());
+    }
 
-        initialiseGame();
+    /**
+     * Save the game to a file after every placement, so it can be resumed
+     * if the game is left. The file is deleted when the game ends.
+     *
+     * @param file the file to save to
+     */
+    public void setAutosave(File file) {
+        this.autosave = file;
     }
 
     /**
-     * Initialise a new game and set up anything that needs to be done at the start
+     * Save the game to the autosave file, if there is one, once every command
+     * already sent has run
      */
-    public void initialiseGame() {
-        startTimer();
+    public void autosave() {
+        execute(() -> {
+            if (autosave == null || engine.isGameOver()) {
+                return;
+            }
 
-        currentPiece = spawnPiece();
-        followingPiece = spawnPiece();
-        receive2(currentPiece);
+            // Written beside the save and renamed over it, so a crash part way
+            // through leaves the last save as it was
+            Path path = autosave.toPath();
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try {
+                Files.createDirectories(path.getParent());
+                Files.write(temp, saveSnapshot());
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                logger.error("Could not save game", e);
+            }
+        });
+    }
 
-        logger.info("Initialising game");
+    /**
+     * Get the file games are saved to, in the data folder next to the scores
+     *
+     * @return save file
+     */
+    public static File getSaveFile() {
+        return new File(ScoreRepository.getDataFolder(), "save.bin");
     }
 
     /**
@@ -403,70 +685,68 @@ public class Game {
      */
     public void blockClicked(GameBlock gameBlock) {
         // Get the position of this block
-        int x = gameBlock.getX();
-        int y = gameBlock.getY();
-
-        if (grid.canPlayPiece(currentPiece, x, y)) {
-            temp = true;
-            startTimer();
+        blockClicked(gameBlock.getX(), gameBlock.getY());
+    }
 
-            sound.playSounds("place.wav");
+    /**
+     * Handle a click on the block at the given column and row
+     * 
+     * @param x column
+     * @param y row
+     */
+    public void blockClicked(int x, int y) {
+        execute(() -> place(x, y));
+    }
 
-            // Update piece on grid
-            grid.playPiece(currentPiece, x, y);
-            grid.afterPiece(this); // Check if lines need to be cleared
-            nextPiece();
-        } else {
-            temp = false;
+    /**
+     * Place the current piece centred on the given block, saving the game if
+     * it was placed. Must be called on the logic thread, see execute.
+     *
+     * @param x column
+     * @param y row
+     * @return true if the piece was placed
+     */
+    public boolean place(int x, int y) {
+        temp = engine.place(x, y);
+        if (temp) {
+            autosave();
         }
+        return temp;
     }
 
-    int currentX = 0;
-    int currentY = 0;
-
+    /**
+     * Get the column of the keyboard cursor, as of the last pulse
+     *
+     * @return column
+     */
     public int getCurrentX() {
-        return currentX;
+        return cursorX;
     }
 
+    /**
+     * Get the row of the keyboard cursor, as of the last pulse
+     *
+     * @return row
+     */
     public int getCurrentY() {
-        return currentY;
+        return cursorY;
     }
 
+    /**
+     * Move the keyboard cursor by the given number of blocks, stopping at the
+     * edge of the board
+     *
+     * @param dx change in column
+     * @param dy change in row
+     */
     public void move(int dx, int dy) {
-        int newX = currentX + dx;
-        int newY = currentY + dy;
-
-        if (newX >= 0 && newX < getCols() && newY >= 0 && newY < getRows()) {
-            currentX = newX;
-            currentY = newY;
-
-            if (grid.get(currentX, currentY) <= 0) {
-                grid.set(currentX, currentY, 16);
+        execute(() -> {
+            int x = Math.max(0, Math.min(cols - 1, engine.getCursorX() + dx));
+            int y = Math.max(0, Math.min(rows - 1, engine.getCursorY() + dy));
+            if (x != engine.getCursorX() || y != engine.getCursorY()) {
+                engine.moveCursor(x, y);
             }
-
-            // Clear stale 16s in the movement direction
-            if (dx != 0) {
-                int start = (dx > 0) ? 0 : getCols() - 1;
-                int end = currentX;
-                int step = (dx > 0) ? 1 : -1;
-
-                for (int i = start; i != end; i += step) {
-                    if (grid.get(i, currentY) == 16) {
-                        grid.set(i, currentY, 0);
-                    }
-                }
-            } else if (dy != 0) {
-                int start = (dy > 0) ? 0 : getRows() - 1;
-                int end = currentY;
-                int step = (dy > 0) ? 1 : -1;
-
-                for (int i = start; i != end; i += step) {
-                    if (grid.get(currentX, i) == 16) {
-                        grid.set(currentX, i, 0);
-                    }
-                }
-            }
-        }
+        });
     }
 
     public void keyboardControlsW() {
@@ -486,22 +766,22 @@ public class Game {
     }
 
     public void keyboardControlsEnter() {
-        if (grid.canPlayPiece(currentPiece, currentX, currentY)) {
-            temp = true;
-            startTimer();
+        execute(() -> place(engine.getCursorX(), engine.getCursorY()));
+    }
 
-            grid.playPiece(currentPiece, currentX, currentY);
-            grid.afterPiece(this); // Check if lines need to be cleared
-            nextPiece();
-        } else {
-            logger.info("BLOCK OCCUPIED! Pick an available slot.");
-            sound.playSounds("fail.wav");
-            temp = false;
-        }
+    /**
+     * Get the engine running the rules of this game. The engine must only be
+     * used from the logic thread, see execute.
+     *
+     * @return game engine
+     */
+    public GameEngine getEngine() {
+        return engine;
     }
 
     /**
-     * Get the grid model inside this game representing the game state of the board
+     * Get the grid model representing the game state of the board, as of the
+     * last pulse
      * 
      * @return game grid model
      */
@@ -0,0 +1,20 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * The GameClock is the source of time for a GameEngine. The engine never reads the wall clock itself, so a game can be
+ * driven by real time when played, or by a simulated clock when run headless.
+ */
+@FunctionalInterface
+public interface GameClock {
+
+    /**
+     * A clock following the system wall clock
+     */
+    GameClock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * Get the current time
+     * @return the current time in milliseconds
+     */
+    long millis();
+}
@@ -0,0 +1,558 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import uk.ac.soton.comp1206.event.GameEventListener;
+import uk.ac.soton.comp1206.event.InputListener;
+
+/**
+ * The GameEngine holds the rules and state of a single game of TetrECS without any dependency on the UI, audio or the
+ * wall clock. It is driven entirely by commands (place, rotate, swap and tick) and reports everything that happens to
+ * its GameEventListeners.
+ *
+ * Time comes from a GameClock and the order of pieces from a GameRandom, so a game can run headless at full speed with
+ * a simulated clock, or be played in real time through the Game adapter. The clock is read once per command, and every
+ * command is reported to the InputListeners with that time, so a game can be recorded and played back exactly.
+ *
+ * When neither piece can be placed anywhere, which the grid's placement index answers without scanning the board, the
+ * timer runs out at once instead of making the player wait for it.
+ */
+public class GameEngine {
+
+    private static final Logger logger = LogManager.getLogger(GameEngine.class);
+
+    /**
+     * The number of lives at the start of a game
+     */
+    public static final int STARTING_LIVES = 3;
+
+    /**
+     * The listeners receiving events from this engine
+     */
+    private final List<GameEventListener> listeners = new ArrayList<>();
+
+    /**
+     * The listeners receiving every input to this engine
+     */
+    private final List<InputListener> inputListeners = new ArrayList<>();
+
+    /**
+     * The grid model of the board
+     */
+    private final Grid grid;
+
+    /**
+     * The source of time
+     */
+    private final GameClock clock;
+
+    /**
+     * The source of pieces
+     */
+    private final GameRandom random;
+
+    private GamePiece currentPiece;
+    private GamePiece followingPiece;
+
+    private int score = 0;
+    private int level = 0;
+    private int lives = STARTING_LIVES;
+    private int multiplier = 0;
+
+    /**
+     * The block the keyboard cursor is on
+     */
+    private int cursorX = 0, cursorY = 0;
+
+    /**
+     * The time allowed to place a piece, worked out again whenever the level changes
+     */
+    private long timerDelay = delayForLevel(0);
+
+    /**
+     * The time at which the current piece runs out
+     */
+    private long deadline;
+
+    private boolean started = false;
+    private boolean over = false;
+
+    /**
+     * Create a new engine with the given size, running on the system clock with a randomly seeded generator
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    public GameEngine(int cols, int rows) {
+        this(cols, rows, GameClock.SYSTEM, new GameRandom());
+    }
+
+    /**
+     * Create a new engine with the given size, clock and generator
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param clock source of time
+     * @param random source of pieces
+     */
+    public GameEngine(int cols, int rows, GameClock clock, GameRandom random) {
+        this.grid = new Grid(cols, rows);
+        this.clock = clock;
+        this.random = random;
+    }
+
+    /**
+     * Add a listener to receive events from this engine
+     * @param listener the listener
+     */
+    public void addListener(GameEventListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Add a listener to receive every input to this engine
+     * @param listener the listener
+     */
+    public void addInputListener(InputListener listener) {
+        inputListeners.add(listener);
+    }
+
+    /**
+     * Start the game by drawing the first two pieces and starting the timer
+     */
+    public void start() {
+        logger.info("Starting engine");
+
+        long now = clock.millis();
+        for (InputListener listener : inputListeners) {
+            listener.started(this, now);
+        }
+
+        started = true;
+        currentPiece = spawnPiece();
+        followingPiece = spawnPiece();
+
+        for (GameEventListener listener : listeners) {
+            listener.piecesChanged(currentPiece, followingPiece);
+            listener.pieceRotated(currentPiece);
+        }
+        resetTimer(now);
+    }
+
+    /**
+     * Place the current piece centred on the given block. On success the grid is updated, any full lines are cleared
+     * and scored, the timer is restarted and the next piece is drawn.
+     * @param x column
+     * @param y row
+     * @return true if the piece was placed
+     */
+    public boolean place(int x, int y) {
+        if (!started || over) {
+            return false;
+        }
+        long now = clock.millis();
+        input(Input.PLACE, x, y, now);
+
+        if (!grid.canPlayPiece(currentPiece, x, y)) {
+            for (GameEventListener listener : listeners) {
+                listener.placementFailed(currentPiece, x, y);
+            }
+            return false;
+        }
+
+        grid.playPiece(currentPiece, x, y);
+        for (GameEventListener listener : listeners) {
+            listener.piecePlaced(currentPiece, x, y);
+        }
+
+        // Check if lines need to be cleared
+        grid.afterPiece(this);
+
+        resetTimer(now);
+        nextPiece();
+        checkStuck(now);
+        return true;
+    }
+
+    /**
+     * Rotate the current piece clockwise
+     */
+    public void rotate() {
+        if (currentPiece == null) return;
+        input(Input.ROTATE, 0, 0, clock.millis());
+        currentPiece.rotate();
+        for (GameEventListener listener : listeners) {
+            listener.pieceRotated(currentPiece);
+        }
+    }
+
+    /**
+     * Rotate the current piece anticlockwise
+     */
+    public void rotateLeft() {
+        if (currentPiece == null) return;
+        input(Input.ROTATE_LEFT, 0, 0, clock.millis());
+        currentPiece.rotateLeft();
+        for (GameEventListener listener : listeners) {
+            listener.pieceRotated(currentPiece);
+        }
+    }
+
+    /**
+     * Swap the current and following pieces
+     */
+    public void swap() {
+        if (currentPiece == null) return;
+        input(Input.SWAP, 0, 0, clock.millis());
+        GamePiece temp = followingPiece;
+        followingPiece = currentPiece;
+        currentPiece = temp;
+        for (GameEventListener listener : listeners) {
+            listener.piecesChanged(currentPiece, followingPiece);
+        }
+    }
+
+    /**
+     * Advance the game to the current time of the clock. If the timer has run out a life is lost, or the game ends if
+     * there are no lives left.
+     * @return true if the timer had run out
+     */
+    public boolean tick() {
+        long now = clock.millis();
+        if (!started || over || now < deadline) {
+            return false;
+        }
+        input(Input.TIMEOUT, 0, 0, now);
+
+        if (lives == 0) {
+            over = true;
+            logger.info("Game over with score {}", score);
+            for (GameEventListener listener : listeners) {
+                listener.gameOver();
+            }
+            return true;
+        }
+
+        lives--;
+        multiplier = 1;
+        for (GameEventListener listener : listeners) {
+            listener.lifeLost();
+            listener.livesChanged(lives);
+            listener.multiplierChanged(multiplier);
+        }
+
+        resetTimer(now);
+        nextPiece();
+        checkStuck(now);
+        return true;
+    }
+
+    /**
+     * Move the keyboard cursor to the given block. The cursor is not part of the rules, but is kept here so that it is
+     * recorded and restored along with everything else.
+     * @param x column
+     * @param y row
+     */
+    public void moveCursor(int x, int y) {
+        if (x < 0 || x >= grid.getCols() || y < 0 || y >= grid.getRows()) return;
+        input(Input.CURSOR, x, y, clock.millis());
+        cursorX = x;
+        cursorY = y;
+        for (GameEventListener listener : listeners) {
+            listener.cursorMoved(x, y);
+        }
+    }
+
+    /**
+     * Save a copy of the complete state of the game
+     * @return the state
+     */
+    public EngineState saveState() {
+        boolean hasPieces = currentPiece != null;
+        return new EngineState(grid.getCols(), grid.getRows(), grid.getValues(),
+            hasPieces ? currentPiece.getPiece() : -1, hasPieces ? currentPiece.getRotation() : 0,
+            hasPieces ? followingPiece.getPiece() : -1, hasPieces ? followingPiece.getRotation() : 0,
+            score, level, lives, multiplier, cursorX, cursorY, clock.millis(), deadline, random.getState(), started,
+            over);
+    }
+
+    /**
+     * Put the game back into a saved state. The listeners are told about everything that changed, as if it had just
+     * happened. The timer runs out at the saved deadline, so the clock should be set to the saved time first if it is
+     * not the one the state was saved from.
+     * @param state the state, which must be for a grid of the same size
+     */
+    public void restoreState(EngineState state) {
+        if (state.getCols() != grid.getCols() || state.getRows() != grid.getRows()) {
+            throw new IllegalArgumentException("State is for a " + state.getCols() + "x" + state.getRows() + " grid");
+        }
+
+        grid.setValues(state.getValues());
+        currentPiece = state.getCurrentPiece() < 0 ? null
+            : GamePiece.createPiece(state.getCurrentPiece(), state.getCurrentRotation());
+        followingPiece = state.getFollowingPiece() < 0 ? null
+            : GamePiece.createPiece(state.getFollowingPiece(), state.getFollowingRotation());
+        score = state.getScore();
+        level = state.getLevel();
+        timerDelay = delayForLevel(level);
+        lives = state.getLives();
+        multiplier = state.getMultiplier();
+        cursorX = state.getCursorX();
+        cursorY = state.getCursorY();
+        deadline = state.getDeadline();
+        random.setState(state.getRandomState());
+        started = state.isStarted();
+        over = state.isOver();
+
+        for (GameEventListener listener : listeners) {
+            if (currentPiece != null) {
+                listener.piecesChanged(currentPiece, followingPiece);
+                listener.pieceRotated(currentPiece);
+            }
+            listener.scoreChanged(score);
+            listener.levelChanged(level);
+            listener.livesChanged(lives);
+            listener.multiplierChanged(multiplier);
+            listener.cursorMoved(cursorX, cursorY);
+            if (started && !over) {
+                listener.timerReset(Math.max(0, deadline - clock.millis()));
+            }
+        }
+    }
+
+    /**
+     * Tell the input listeners about an input
+     * @param input the kind of input
+     * @param x column, if the input has one
+     * @param y row, if the input has one
+     * @param now the time on the clock
+     */
+    private void input(Input input, int x, int y, long now) {
+        for (InputListener listener : inputListeners) {
+            listener.inputReceived(input, x, y, now);
+        }
+    }
+
+    /**
+     * Called by the grid once it has worked out what the last placement cleared, before the blocks are removed.
+     * Updates the multiplier and score.
+     * @param numOfLines number of lines cleared
+     * @param numOfBlocks number of unique blocks cleared
+     */
+    void linesCleared(int numOfLines, int numOfBlocks) {
+        if (numOfLines > 0) {
+            multiplier++;
+            for (GameEventListener listener : listeners) {
+                listener.linesCleared(numOfLines, numOfBlocks);
+            }
+        } else {
+            multiplier = 0;
+        }
+        for (GameEventListener listener : listeners) {
+            listener.multiplierChanged(multiplier);
+        }
+
+        score(numOfBlocks, numOfLines);
+    }
+
+    /**
+     * Called by the grid once the cleared blocks have been emptied
+     * @param cleared everything removed by the clear
+     */
+    void blocksCleared(ClearedBlocks cleared) {
+        for (GameEventListener listener : listeners) {
+            listener.blocksCleared(cleared);
+        }
+    }
+
+    /**
+     * Check whether anything is listening to this engine, so the grid can skip recording a clear nobody will read
+     * @return true if there is at least one listener
+     */
+    boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Add the score for a clear and update the level to match
+     * @param numOfBlocks number of unique blocks cleared
+     * @param numOfLines number of lines cleared
+     */
+    private void score(int numOfBlocks, int numOfLines) {
+        int scoreUpdate = numOfLines * numOfBlocks * 10 * multiplier;
+        if (scoreUpdate == 0) {
+            return;
+        }
+
+        score += scoreUpdate;
+        for (GameEventListener listener : listeners) {
+            listener.scoreChanged(score);
+        }
+
+        int newLevel = score / 1000;
+        if (newLevel != level) {
+            level = newLevel;
+            timerDelay = delayForLevel(level);
+            for (GameEventListener listener : listeners) {
+                listener.levelChanged(level);
+            }
+        }
+    }
+
+    /**
+     * Restart the timer from the time the current command arrived
+     * @param now the time on the clock
+     */
+    private void resetTimer(long now) {
+        deadline = now + timerDelay;
+        for (GameEventListener listener : listeners) {
+            listener.timerReset(timerDelay);
+        }
+    }
+
+    /**
+     * Draw a new random piece
+     * @return the new piece
+     */
+    private GamePiece spawnPiece() {
+        return GamePiece.createPiece(random.nextInt(GamePiece.PIECES));
+    }
+
+    /**
+     * Move the following piece into play and draw a new following piece
+     */
+    private void nextPiece() {
+        currentPiece = followingPiece;
+        followingPiece = spawnPiece();
+        for (GameEventListener listener : listeners) {
+            listener.piecesChanged(currentPiece, followingPiece);
+        }
+    }
+
+    /**
+     * Run the timer out straight away if neither piece can be placed anywhere, so the life is lost without waiting for
+     * a move that cannot be made
+     * @param now the time on the clock
+     */
+    private void checkStuck(long now) {
+        if (hasLegalMove()) {
+            return;
+        }
+        logger.info("No moves left for {} or {}", currentPiece, followingPiece);
+        deadline = now;
+        for (GameEventListener listener : listeners) {
+            listener.timerReset(0);
+        }
+    }
+
+    /**
+     * Check whether the current or following piece can be placed anywhere on the board, in any rotation. Uses the
+     * grid's placement index, so it does not scan the board.
+     * @return true if there is at least one legal move
+     */
+    public boolean hasLegalMove() {
+        if (currentPiece == null) return false;
+        PlacementIndex index = grid.getPlacementIndex();
+        return index.canPlace(currentPiece.getPiece()) || index.canPlace(followingPiece.getPiece());
+    }
+
+    /**
+     * Get the Zobrist hash of the position: the blocks of the grid and the current and following pieces
+     * @return hash
+     */
+    public long getHash() {
+        if (currentPiece == null) return grid.getHash();
+        return grid.getHash() ^ Zobrist.queue(currentPiece.getPiece(), followingPiece.getPiece());
+    }
+
+    /**
+     * Get the time allowed to place a piece at the current level
+     * @return delay in milliseconds
+     */
+    public long getTimerDelay() {
+        return timerDelay;
+    }
+
+    /**
+     * Work out the time allowed to place a piece at a level
+     * @param level the level
+     * @return delay in milliseconds
+     */
+    private static long delayForLevel(int level) {
+        return Math.max(2500, 12000 - 500L * level);
+    }
+
+    /**
+     * Get the time at which the current piece runs out
+     * @return deadline in clock milliseconds
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Get the grid model of the board
+     * @return grid
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Get the clock driving this engine
+     * @return clock
+     */
+    public GameClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Get the generator picking pieces for this engine
+     * @return generator
+     */
+    public GameRandom getRandom() {
+        return random;
+    }
+
+    public GamePiece getCurrentPiece() {
+        return currentPiece;
+    }
+
+    public GamePiece getFollowingPiece() {
+        return followingPiece;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getLives() {
+        return lives;
+    }
+
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    public int getCursorX() {
+        return cursorX;
+    }
+
+    public int getCursorY() {
+        return cursorY;
+    }
+
+    /**
+     * Check whether the game has ended
+     * @return true once the last life has been lost
+     */
+    public boolean isGameOver() {
+        return over;
+    }
+}
@@ -4,7 +4,8 @@ package uk.ac.soton.comp1206.game;
  * Instances of GamePiece Represents the model of a specific Game Piece with it's block makeup.
  *
  * The GamePiece class also contains a factory for producing a GamePiece of a particular shape, as specified by it's
- * number.
+ * number. The block makeup itself lives in the shared PieceShape table, so a GamePiece only tracks which shape it is
+ * currently in and rotating it never allocates.
  */
 public class GamePiece {
 
@@ -14,19 +15,14 @@ public class GamePiece {
     public static final int PIECES = 15;
 
     /**
-     * The 2D grid representation of the shape of this piece
+     * The number of this piece
      */
-    private int[][] blocks;
+    private final int piece;
 
     /**
-     * The value of this piece
+     * The current shape of this piece, one of the shared rotations in the PieceShape table
      */
-    private final int value;
-
-    /**
-     * The name of this piece
-     */
-    private final String name;
+    private PieceShape shape;
 
     /**
      * Create a new GamePiece of the specified piece number
@@ -34,100 +30,7 @@ public class GamePiece {
      * @return the created GamePiece
      */
     public static GamePiece createPiece(int piece) {
-        switch (piece) {
-            //Line
-            case 0 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 0}};
-                return new GamePiece("Line", blocks, 1);
-            }
-
-            //C
-            case 1 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {1, 0, 1}};
-                return new GamePiece("C", blocks, 2);
-            }
-
-            //Plus
-            case 2 -> {
-                int[][] blocks = {{0, 1, 0}, {1, 1, 1}, {0, 1, 0}};
-                return new GamePiece("Plus", blocks, 3);
-            }
-
-            //Dot
-            case 3 -> {
-                int[][] blocks = {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Dot", blocks, 4);
-            }
-
-            //Square
-            case 4 -> {
-                int[][] blocks = {{1, 1, 0}, {1, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Square", blocks, 5);
-            }
-
-            //L
-            case 5 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 1}};
-                return new GamePiece("L", blocks, 6);
-            }
-
-            //J
-            case 6 -> {
-                int[][] blocks = {{0, 0, 1}, {1, 1, 1}, {0, 0, 0}};
-                return new GamePiece("J", blocks, 7);
-            }
-
-            //S
-            case 7 -> {
-                int[][] blocks = {{0, 0, 0}, {0, 1, 1}, {1, 1, 0}};
-                return new GamePiece("S", blocks, 8);
-            }
-
-            //Z
-            case 8 -> {
-                int[][] blocks = {{1, 1, 0}, {0, 1, 1}, {0, 0, 0}};
-                return new GamePiece("Z", blocks, 9);
-            }
-
-            //T
-            case 9 -> {
-                int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {1, 0, 0}};
-                return new GamePiece("T", blocks, 10);
-            }
-
-            //X
-            case 10 -> {
-                int[][] blocks = {{1, 0, 1}, {0, 1, 0}, {1, 0, 1}};
-                return new GamePiece("X", blocks, 11);
-            }
-
-            //Corner
-            case 11 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 0}, {1, 0, 0}};
-                return new GamePiece("Corner", blocks, 12);
-            }
-
-            //Inverse Corner
-            case 12 -> {
-                int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Inverse Corner", blocks, 13);
-            }
-
-            //Diagonal
-            case 13 -> {
-                int[][] blocks = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
-                return new GamePiece("Diagonal", blocks, 14);
-            }
-
-            //Double
-            case 14 -> {
-                int[][] blocks = {{0, 1, 0}, {0, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Double", blocks, 15);
-            }
-        }
-
-        //Not a valid piece number
-        throw new IndexOutOfBoundsException("No such piece: " + piece);
+        return new GamePiece(PieceShape.get(piece, 0));
     }
 
     /**
@@ -137,31 +40,16 @@ public class GamePiece {
      * @return the created GamePiece
      */
     public static GamePiece createPiece(int piece, int rotation) {
-        var newPiece = createPiece(piece);
-
-        newPiece.rotate(rotation);
-        return newPiece;
+        return new GamePiece(PieceShape.get(piece, rotation));
     }
 
     /**
-     * Create a new GamePiece with the given name, block makeup and value. Should not be called directly, only via the
-     * factory.
-     * @param name name of the piece
-     * @param blocks block makeup of the piece
-     * @param value the value of this piece
+     * Create a new GamePiece starting in the given shape. Should not be called directly, only via the factory.
+     * @param shape the starting shape of the piece
      */
-    private GamePiece(String name, int[][] blocks, int value) {
-        this.name = name;
-        this.blocks = blocks;
-        this.value = value;
-
-        //Use the shape of the block to create a grid with either 0 (empty) or the value of this shape for each block.
-        for(int x = 0; x < blocks.length; x++) {
-            for (int y = 0; y < blocks[x].length; y++) {
-                if(blocks[x][y] == 0) continue;
-                blocks[x][y] = value;
-            }
-        }
+    private GamePiece(PieceShape shape) {
+        this.piece = shape.getPiece();
+        this.shape = shape;
     }
 
     /**
@@ -169,15 +57,39 @@ public class GamePiece {
      * @return piece value
      */
     public int getValue() {
-        return value;
+        return shape.getValue();
+    }
+
+    /**
+     * Get the number of this piece
+     * @return piece number
+     */
+    public int getPiece() {
+        return piece;
+    }
+
+    /**
+     * Get the current rotation of this piece
+     * @return number of clockwise rotations, 0 to 3
+     */
+    public int getRotation() {
+        return shape.getRotation();
     }
 
     /**
-     * Get the block makeup of this piece
+     * Get the current shape of this piece
+     * @return the shared shape for the current rotation
+     */
+    public PieceShape getShape() {
+        return shape;
+    }
+
+    /**
+     * Get a copy of the block makeup of this piece
      * @return 2D grid of the blocks representing the piece shape
      */
     public int[][] getBlocks() {
-        return blocks;
+        return shape.getBlocks();
     }
 
     /**
@@ -185,46 +97,21 @@ public class GamePiece {
      * @param rotations number of rotations
      */
     public void rotate(int rotations) {
-        for(int rotated = 0; rotated < rotations; rotated ++) {
-            rotate();
-        }
+        shape = PieceShape.get(piece, shape.getRotation() + rotations);
     }
 
     /**
-     * Rotate this piece exactly once by rotating it's 3x3 grid
+     * Rotate this piece exactly once clockwise by moving to the next shape in the table
      */
     public void rotate() {
-        int[][] rotated = new int[blocks.length][blocks[0].length];
-        rotated[2][0] = blocks[0][0];
-        rotated[1][0] = blocks[0][1];
-        rotated[0][0] = blocks[0][2];
-
-        rotated[2][1] = blocks[1][0];
-        rotated[1][1] = blocks[1][1];
-        rotated[0][1] = blocks[1][2];
-
-        rotated[2][2] = blocks[2][0];
-        rotated[1][2] = blocks[2][1];
-        rotated[0][2] = blocks[2][2];
-
-        blocks = rotated;
+        shape = shape.rotateRight();
     }
 
+    /**
+     * Rotate this piece exactly once anticlockwise by moving to the previous shape in the table
+     */
     public void rotateLeft() {
-        int[][] rotated = new int[blocks.length][blocks[0].length];
-        rotated[0][0] = blocks[2][0];
-        rotated[0][1] = blocks[1][0];
-        rotated[0][2] = blocks[0][0];
-
-        rotated[1][0] = blocks[2][1];
-        rotated[1][1] = blocks[1][1];
-        rotated[1][2] = blocks[0][1];
-
-        rotated[2][0] = blocks[2][2];
-        rotated[2][1] = blocks[1][2];
-        rotated[2][2] = blocks[0][2];
-
-        blocks = rotated;
+        shape = shape.rotateLeft();
     }
 
 
@@ -233,7 +120,7 @@ public class GamePiece {
      * @return the name of this piece
      */
     public String toString() {
-        return this.name;
+        return PieceShape.getName(piece);
     }
 
 
@@ -0,0 +1,61 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * The GameRandom is the source of randomness for a GameEngine, used to pick which piece comes next.
+ *
+ * It is a small SplitMix64 generator whose whole state is a single long, so a game can be seeded and its state read
+ * back or restored. Override nextInt to plug in a different source of pieces.
+ */
+public class GameRandom {
+
+    /**
+     * The current state of the generator
+     */
+    private long state;
+
+    /**
+     * Create a new generator with a seed taken from the system
+     */
+    public GameRandom() {
+        this(System.nanoTime() ^ System.identityHashCode(new Object()));
+    }
+
+    /**
+     * Create a new generator with the given seed. Generators with the same seed produce the same values.
+     * @param seed the seed
+     */
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Get the next random value between 0 (inclusive) and bound (exclusive)
+     * @param bound upper bound, must be positive
+     * @return the next value
+     */
+    public int nextInt(int bound) {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+
+        //Scale the top 32 bits into the range rather than using modulo
+        return (int) (((z >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Get the current state of the generator
+     * @return the state
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Restore the generator to a previously read state
+     * @param state the state
+     */
+    public void setState(long state) {
+        this.state = state;
+    }
+}
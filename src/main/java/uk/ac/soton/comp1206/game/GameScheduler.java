@@ -0,0 +1,46 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The GameScheduler runs the timers of every game on one shared thread.
+ *
+ * A game only ever has one deadline waiting at a time, and it moves on every placement, so each game reschedules a
+ * single task here instead of starting a thread of its own. Cancelled tasks are taken off the queue straight away so
+ * a long game does not leave thousands of dead timers behind.
+ */
+public class GameScheduler {
+
+    private static final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, task -> {
+        Thread thread = new Thread(task, "Game Scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    private GameScheduler() {
+    }
+
+    /**
+     * Run a task once after a delay
+     * @param task the task
+     * @param delay delay in milliseconds
+     * @return the scheduled task, which can be cancelled
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long delay) {
+        return executor.schedule(task, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the number of tasks waiting to run
+     * @return number of scheduled tasks
+     */
+    public static int getPending() {
+        return executor.getQueue().size();
+    }
+}
@@ -0,0 +1,190 @@
+package uk.ac.soton.comp1206.game;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * GameSnapshot reads and writes an EngineState as a small fixed layout binary record, for saving a game part way
+ * through and resuming it later.
+ *
+ * The layout is, in order and big endian: the magic number 0x54534E50 ("TSNP"), a format version byte, the number of
+ * columns and rows as shorts, the grid packed two blocks to a byte (the block with the even index in the high
+ * nibble), the current and following pieces and their rotations as bytes (0xFF for no piece), the score, level,
+ * lives and multiplier as ints, the cursor column and row as shorts, the time left on the timer in milliseconds as
+ * an int, the state of the piece generator as a long and a flags byte (bit 0 started, bit 1 over).
+ *
+ * The timer is stored as the time left rather than as a deadline, so a game resumes with the same time left however
+ * long it was saved for.
+ */
+public final class GameSnapshot {
+
+    /**
+     * Magic number at the start of every snapshot
+     */
+    public static final int MAGIC = 0x54534E50;
+
+    /**
+     * Version of the snapshot layout
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of everything but the grid
+     */
+    private static final int FIXED_SIZE = 4 + 1 + 2 + 2 + 4 + 4 * 4 + 2 + 2 + 4 + 8 + 1;
+
+    private static final int NO_PIECE = 0xFF;
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * Get the size of a snapshot of a grid of the given size
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return size in bytes
+     */
+    public static int size(int cols, int rows) {
+        return FIXED_SIZE + (cols * rows + 1) / 2;
+    }
+
+    /**
+     * Write a state into a new snapshot
+     * @param state the state
+     * @return the snapshot
+     */
+    public static byte[] write(EngineState state) {
+        ByteBuffer out = ByteBuffer.allocate(size(state.getCols(), state.getRows()));
+        write(state, out);
+        return out.array();
+    }
+
+    /**
+     * Write a state into a buffer
+     * @param state the state
+     * @param out the buffer, with at least size(cols, rows) bytes remaining
+     */
+    public static void write(EngineState state, ByteBuffer out) {
+        out.putInt(MAGIC);
+        out.put((byte) VERSION);
+        out.putShort((short) state.getCols());
+        out.putShort((short) state.getRows());
+
+        int[] values = state.getValues();
+        for (int i = 0; i < values.length; i += 2) {
+            int high = block(values[i]);
+            int low = i + 1 < values.length ? block(values[i + 1]) : 0;
+            out.put((byte) (high << 4 | low));
+        }
+
+        out.put((byte) (state.getCurrentPiece() < 0 ? NO_PIECE : state.getCurrentPiece()));
+        out.put((byte) state.getCurrentRotation());
+        out.put((byte) (state.getFollowingPiece() < 0 ? NO_PIECE : state.getFollowingPiece()));
+        out.put((byte) state.getFollowingRotation());
+
+        out.putInt(state.getScore());
+        out.putInt(state.getLevel());
+        out.putInt(state.getLives());
+        out.putInt(state.getMultiplier());
+        out.putShort((short) state.getCursorX());
+        out.putShort((short) state.getCursorY());
+        out.putInt((int) Math.min(Integer.MAX_VALUE, state.getRemaining()));
+        out.putLong(state.getRandomState());
+        out.put((byte) ((state.isStarted() ? 1 : 0) | (state.isOver() ? 2 : 0)));
+    }
+
+    /**
+     * Read a state from a snapshot
+     * @param snapshot the snapshot
+     * @param now the time on the clock of the engine it will be restored into
+     * @return the state, with its timer running out the saved time after now
+     * @throws IOException if the snapshot is not valid
+     */
+    public static EngineState read(byte[] snapshot, long now) throws IOException {
+        return read(ByteBuffer.wrap(snapshot), now);
+    }
+
+    /**
+     * Read a state from a buffer
+     * @param in the buffer
+     * @param now the time on the clock of the engine it will be restored into
+     * @return the state, with its timer running out the saved time after now
+     * @throws IOException if the snapshot is not valid
+     */
+    public static EngineState read(ByteBuffer in, long now) throws IOException {
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a game snapshot");
+            }
+            int version = in.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+
+            int cols = in.getShort() & 0xFFFF;
+            int rows = in.getShort() & 0xFFFF;
+            int[] values = new int[cols * rows];
+            for (int i = 0; i < values.length; i += 2) {
+                int packed = in.get() & 0xFF;
+                values[i] = packed >>> 4;
+                if (i + 1 < values.length) {
+                    values[i + 1] = packed & 0xF;
+                }
+            }
+
+            int currentPiece = piece(in.get());
+            int currentRotation = rotation(in.get());
+            int followingPiece = piece(in.get());
+            int followingRotation = rotation(in.get());
+
+            int score = in.getInt();
+            int level = in.getInt();
+            int lives = in.getInt();
+            int multiplier = in.getInt();
+            int cursorX = in.getShort() & 0xFFFF;
+            int cursorY = in.getShort() & 0xFFFF;
+            long remaining = in.getInt();
+            long randomState = in.getLong();
+            int flags = in.get();
+
+            if (cursorX >= cols || cursorY >= rows) {
+                throw new IllegalArgumentException("Cursor " + cursorX + "," + cursorY + " is off the board");
+            }
+            if (lives < 0 || remaining < 0) {
+                throw new IllegalArgumentException("Negative lives or time left");
+            }
+
+            return new EngineState(cols, rows, values, currentPiece, currentRotation, followingPiece,
+                followingRotation, score, level, lives, multiplier, cursorX, cursorY, now, now + remaining,
+                randomState, (flags & 1) != 0, (flags & 2) != 0);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Game snapshot is corrupt", e);
+        }
+    }
+
+    /**
+     * Get the value of a block to store, which must fit in four bits
+     */
+    private static int block(int value) {
+        return value > 0 && value < 16 ? value : 0;
+    }
+
+    private static int rotation(byte stored) {
+        if (stored < 0 || stored >= PieceShape.ROTATIONS) {
+            throw new IllegalArgumentException("No such rotation " + stored);
+        }
+        return stored;
+    }
+
+    private static int piece(byte stored) {
+        int piece = stored & 0xFF;
+        if (piece == NO_PIECE) {
+            return -1;
+        }
+        if (piece >= GamePiece.PIECES) {
+            throw new IllegalArgumentException("No such piece " + piece);
+        }
+        return piece;
+    }
+}
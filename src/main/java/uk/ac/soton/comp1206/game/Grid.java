@@ -1,24 +1,30 @@
 package uk.ac.soton.comp1206.game;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
-import javafx.util.Pair;
-import uk.ac.soton.comp1206.event.Multimedia;
 
 /**
  * The Grid is a model which holds the state of a game board. It is made up of a
  * set of Integer values arranged in a 2D
  * arrow, with rows and columns.
  *
- * Each value inside the Grid is an IntegerProperty can be bound to enable
- * modification and display of the contents of
- * the grid.
+ * Occupancy is held as a bitboard: every row is packed into one or more longs,
+ * one bit per column, so placement checks and full line detection are a few
+ * AND/compare operations per row instead of a walk over every cell.
+ *
+ * Alongside the bitboard the grid counts the filled blocks in every row and
+ * column, and how many rows and columns are full, so a placement that does not
+ * complete a line is recognised without looking at the rest of the board. The
+ * cost of a placement does not grow with the size of the board.
+ *
+ * The value of each block is held in a primitive array alongside the bitboard.
+ * The IntegerProperty view used for binding is only created when it is first
+ * requested, and is kept in sync from the primitive model on every write.
  *
  * The Grid contains functions related to modifying the model, for example,
  * placing a piece inside the grid.
@@ -29,8 +35,6 @@ public class Grid {
 
     private static final Logger logger = LogManager.getLogger(Grid.class);
 
-    Multimedia sound = new Multimedia();
-
     /**
      * The number of columns in this grid
      */
@@ -42,75 +46,316 @@ public class Grid {
     private final int rows;
 
     /**
-     * The grid is a 2D arrow with rows and columns of SimpleIntegerProperties.
+     * The number of longs used to store a single row of the bitboard
      */
-    private final SimpleIntegerProperty[][] grid;
+    private final int words;
+
+    /**
+     * Occupancy bitboard, row major. Row y is held in words [y * words, (y + 1) * words)
+     * and column x is bit (x % 64) of word (x / 64) within the row.
+     */
+    private final long[] occupied;
+
+    /**
+     * The value of every word in a completely filled row
+     */
+    private final long[] fullRow;
+
+    /**
+     * The columns cleared by the last placement, bit (x % 64) of word (x / 64)
+     */
+    private final long[] columnScratch;
+
+    /**
+     * The rows cleared by the last placement, bit (y % 64) of word (y / 64)
+     */
+    private final long[] clearedRows;
+
+    /**
+     * The blocks cleared by the last placement, laid out like the bitboard
+     */
+    private final long[] clearedCells;
+
+    /**
+     * The number of lines and blocks cleared by the last placement
+     */
+    private int linesCleared, blocksCleared;
+
+    /**
+     * Whether the cleared masks hold anything, so they only need emptying
+     * after a placement that cleared something
+     */
+    private boolean clearMasksUsed = false;
+
+    /**
+     * The number of filled blocks in each row and each column
+     */
+    private final int[] rowCounts, colCounts;
+
+    /**
+     * The number of rows and columns which are completely filled
+     */
+    private int fullRows = 0, fullCols = 0;
+
+    /**
+     * Incremented on every change to a block, so a view can tell when it
+     * needs redrawing
+     */
+    private int modCount = 0;
+
+    /**
+     * The value of every block, indexed by y * cols + x
+     */
+    private final int[] values;
+
+    /**
+     * The IntegerProperty view of the grid, created on demand for binding.
+     */
+    private SimpleIntegerProperty[][] grid;
+
+    /**
+     * Records every change of a block for a view on another thread, or null
+     */
+    private ChangeSet.Builder changes;
+
+    /**
+     * The index of legal placements, created on demand and kept up to date on
+     * every change of occupancy.
+     */
+    private PlacementIndex placements;
+
+    /**
+     * The Zobrist hash of the blocks, updated whenever a block changes
+     */
+    private long hash;
 
     /**
      * Create a new Grid with the specified number of columns and rows and
      * initialise them
-     * 
+     *
      * @param cols number of columns
      * @param rows number of rows
      */
     public Grid(int cols, int rows) {
+        if (cols < 1 || rows < 1) {
+            throw new IllegalArgumentException("Grid must have at least one column and row: " + cols + "x" + rows);
+        }
         this.cols = cols;
         this.rows = rows;
-
-        // Create the grid itself
-        grid = new SimpleIntegerProperty[cols][rows];
-
-        // Add a SimpleIntegerProperty to every block in the grid
-        for (var y = 0; y < rows; y++) {
-            for (var x = 0; x < cols; x++) {
-                grid[x][y] = new SimpleIntegerProperty(0);
-            }
+        this.words = (cols + 63) >>> 6;
+
+        // Create the bitboard and the block values
+        occupied = new long[rows * words];
+        values = new int[cols * rows];
+        columnScratch = new long[words];
+        clearedRows = new long[(rows + 63) >>> 6];
+        clearedCells = new long[rows * words];
+        rowCounts = new int[rows];
+        colCounts = new int[cols];
+
+        // Work out what a complete row looks like, the last word may be partial
+        fullRow = new long[words];
+        for (int w = 0; w < words; w++) {
+            int bits = Math.min(64, cols - (w << 6));
+            fullRow[w] = bits == 64 ? -1L : (1L << bits) - 1;
         }
     }
 
     /**
      * Get the Integer property contained inside the grid at a given row and column
      * index. Can be used for binding.
-     * 
+     *
      * @param x column
      * @param y row
      * @return the IntegerProperty at the given x and y in this grid
      */
     public IntegerProperty getGridProperty(int x, int y) {
+        if (grid == null) {
+            // First binding, build the property view from the current model
+            grid = new SimpleIntegerProperty[cols][rows];
+            for (var gy = 0; gy < rows; gy++) {
+                for (var gx = 0; gx < cols; gx++) {
+                    grid[gx][gy] = new SimpleIntegerProperty(values[gy * cols + gx]);
+                }
+            }
+        }
         return grid[x][y];
     }
 
     /**
      * Update the value at the given x and y index within the grid
-     * 
+     *
      * @param x     column
      * @param y     row
      * @param value the new value
      */
     public void set(int x, int y, int value) {
-        grid[x][y].set(value);
+        int previous = values[y * cols + x];
+        values[y * cols + x] = value;
+        if (previous != value) {
+            hash ^= Zobrist.cell(y * cols + x, previous) ^ Zobrist.cell(y * cols + x, value);
+        }
+        modCount++;
+
+        int word = y * words + (x >>> 6);
+        long bit = 1L << x;
+        boolean wasOccupied = (occupied[word] & bit) != 0;
+        boolean isOccupied = value > 0;
+        if (isOccupied) {
+            occupied[word] |= bit;
+        } else {
+            occupied[word] &= ~bit;
+        }
+
+        if (wasOccupied != isOccupied) {
+            count(x, y, isOccupied ? 1 : -1);
+            if (placements != null) {
+                placements.cellChanged(x, y, isOccupied);
+            }
+        }
+
+        // Keep the property view in sync
+        if (grid != null) {
+            grid[x][y].set(value);
+        }
+        if (changes != null) {
+            changes.cell(y * cols + x, value);
+        }
+    }
+
+    /**
+     * Record every change of a block from now on, so it can be published to
+     * a view of the grid on another thread
+     *
+     * @param changes where to record the changes, or null to stop recording
+     */
+    void setChangeLog(ChangeSet.Builder changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Update the row and column counts for a block being filled or emptied
+     *
+     * @param x      column
+     * @param y      row
+     * @param change 1 if the block was filled, -1 if it was emptied
+     */
+    private void count(int x, int y, int change) {
+        if (rowCounts[y] == cols) fullRows--;
+        if (colCounts[x] == rows) fullCols--;
+        rowCounts[y] += change;
+        colCounts[x] += change;
+        if (rowCounts[y] == cols) fullRows++;
+        if (colCounts[x] == rows) fullCols++;
     }
 
     /**
      * Get the value represented at the given x and y index within the grid
-     * 
+     *
      * @param x column
      * @param y row
      * @return the value
      */
     public int get(int x, int y) {
-        try {
-            // Get the value held in the property at the x and y index provided
-            return grid[x][y].get();
-        } catch (ArrayIndexOutOfBoundsException e) {
+        if (x < 0 || x >= cols || y < 0 || y >= rows) {
             // No such index
             return -1;
         }
+        return values[y * cols + x];
+    }
+
+    /**
+     * Check whether the block at the given x and y is occupied by a piece
+     *
+     * @param x column
+     * @param y row
+     * @return true if a piece has been placed on this block
+     */
+    public boolean isOccupied(int x, int y) {
+        return (occupied[y * words + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Create a copy of the blocks in this grid. The copy has no property view
+     * or placement index of its own.
+     *
+     * @return a new grid with the same blocks
+     */
+    public Grid copy() {
+        Grid copy = new Grid(cols, rows);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Overwrite the blocks in this grid with those of another grid of the same
+     * size. Used to reuse scratch grids when searching ahead.
+     *
+     * @param other the grid to copy
+     */
+    public void copyFrom(Grid other) {
+        if (other.cols != cols || other.rows != rows) {
+            throw new IllegalArgumentException("Grid sizes do not match");
+        }
+
+        if (grid != null || placements != null || changes != null) {
+            // Go through set so the view and index see every change
+            for (int y = 0; y < rows; y++) {
+                for (int x = 0; x < cols; x++) {
+                    set(x, y, other.values[y * cols + x]);
+                }
+            }
+            return;
+        }
+
+        System.arraycopy(other.values, 0, values, 0, values.length);
+        System.arraycopy(other.occupied, 0, occupied, 0, occupied.length);
+        System.arraycopy(other.rowCounts, 0, rowCounts, 0, rows);
+        System.arraycopy(other.colCounts, 0, colCounts, 0, cols);
+        fullRows = other.fullRows;
+        fullCols = other.fullCols;
+        hash = other.hash;
+        modCount++;
+    }
+
+    /**
+     * Get the Zobrist hash of the blocks. Grids of the same size with the same
+     * value in every block have the same hash.
+     *
+     * @return hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Get a copy of the value of every block, indexed by y * cols + x
+     *
+     * @return values
+     */
+    int[] getValues() {
+        return values.clone();
+    }
+
+    /**
+     * Overwrite the value of every block
+     *
+     * @param newValues values indexed by y * cols + x
+     */
+    void setValues(int[] newValues) {
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                int value = newValues[y * cols + x];
+                if (values[y * cols + x] != value) {
+                    set(x, y, value);
+                }
+            }
+        }
     }
 
     /**
      * Get the number of columns in this game
-     * 
+     *
      * @return number of columns
      */
     public int getCols() {
@@ -119,38 +364,64 @@ public class Grid {
 
     /**
      * Get the number of rows in this game
-     * 
+     *
      * @return number of rows
      */
     public int getRows() {
         return rows;
     }
 
+    /**
+     * Check whether the pattern overlaps anything already placed in the given row
+     *
+     * @param y       row
+     * @param x       column of the lowest bit of the pattern
+     * @param pattern bits to test, bit 0 is column x
+     * @return true if any bit in the pattern is already occupied
+     */
+    private boolean rowOverlaps(int y, int x, long pattern) {
+        int word = y * words + (x >>> 6);
+        int shift = x & 63;
+
+        if ((occupied[word] & (pattern << shift)) != 0) {
+            return true;
+        }
+        // The pattern may spill over into the next word of the row
+        return shift != 0 && (x >>> 6) + 1 < words && (occupied[word + 1] & (pattern >>> (64 - shift))) != 0;
+    }
+
     public boolean canPlayPiece(GamePiece piece, int x, int y) {
-        int[][] blocks = piece.getBlocks();
-
-        for (int i = 0; i < blocks.length; i++) {
-            for (int j = 0; j < blocks[i].length; j++) {
-                int gridX = (x + j) - 1;
-                int gridY = (y + i) - 1;
-
-                // Skip if this block isn't part of the piece
-                if (blocks[j][i] <= 0)
-                    continue;
-
-                // Check bounds before access
-                if (gridX < 0 || gridX >= getCols() || gridY < 0 || gridY >= getRows()) {
-                    logger.info("OUT OF BOUNDS at {}, {}", gridX, gridY);
-                    sound.playSounds("fail.wav");
-                    return false;
-                }
+        return canPlayShape(piece.getShape(), x, y);
+    }
 
-                int value = get(gridX, gridY);
-                if (value > 0 && value != 16) {
-                    logger.info("BLOCK OCCUPIED! Pick an available slot.");
-                    sound.playSounds("fail.wav");
-                    return false;
-                }
+    /**
+     * Check whether a shape can be placed centred on the given block
+     *
+     * @param shape the shape to place
+     * @param x     column
+     * @param y     row
+     * @return true if every block of the shape is on the board and empty
+     */
+    public boolean canPlayShape(PieceShape shape, int x, int y) {
+        for (int i = shape.getMinY(); i <= shape.getMaxY(); i++) {
+            int pattern = shape.getRowMask(i);
+
+            // Skip rows of the piece with no blocks in them
+            if (pattern == 0)
+                continue;
+
+            int gridY = (y + i) - 1;
+            int first = Integer.numberOfTrailingZeros(pattern);
+            int gridX = (x + first) - 1;
+            int lastX = (x + 31 - Integer.numberOfLeadingZeros(pattern)) - 1;
+
+            // Check bounds before access
+            if (gridX < 0 || lastX >= getCols() || gridY < 0 || gridY >= getRows()) {
+                return false;
+            }
+
+            if (rowOverlaps(gridY, gridX, pattern >>> first)) {
+                return false;
             }
         }
 
@@ -159,89 +430,219 @@ public class Grid {
 
     // Place piece onto the board
     public void playPiece(GamePiece piece, int x, int y) {
+        playShape(piece.getShape(), x, y);
+    }
 
-        logger.info("Clicked x:{}, y:{}", x, y);
+    /**
+     * Place a shape centred on the given block, without checking it fits
+     *
+     * @param shape the shape to place
+     * @param x     column
+     * @param y     row
+     */
+    public void playShape(PieceShape shape, int x, int y) {
+        for (int cell = 0; cell < shape.getCellCount(); cell++) {
+            set((x + shape.getCellX(cell)) - 1, (y + shape.getCellY(cell)) - 1, shape.getValue());
+        }
+    }
 
-        for (int i = 0; i < piece.getBlocks().length; i++) {
-            for (int j = 0; j < piece.getBlocks()[i].length; j++) {
+    /**
+     * Find every full row and column after a piece has been played, report the
+     * lines to the engine for scoring and then clear the blocks.
+     *
+     * The full lines are left in the cleared row, column and cell masks until
+     * the next call. Nothing is allocated.
+     *
+     * @param engine the engine to report the clear to
+     */
+    public void afterPiece(GameEngine engine) {
+        findLines();
 
-                if (piece.getBlocks()[j][i] >= 1) {
-                    set((x + j) - 1, (y + i) - 1, piece.getValue());
-                }
-            }
+        if (linesCleared == 0) {
+            engine.linesCleared(0, 0);
+            return;
+        }
+
+        logger.debug("Num of lines cleared:{}", linesCleared);
+        logger.debug("Total blocks cleared:{}", blocksCleared);
+
+        // Update multiplier and score
+        engine.linesCleared(linesCleared, blocksCleared);
+
+        // Record the clear for anyone listening before the blocks are emptied
+        ClearedBlocks cleared = engine.hasListeners() ? new ClearedBlocks(this) : null;
+
+        clearCells();
+
+        if (cleared != null) {
+            engine.blocksCleared(cleared);
         }
-        sound.playSounds("place.wav");
     }
 
-    public void afterPiece(Game gm) {
-        Set<Integer> fullRows = new HashSet<>();
-        Set<Integer> fullCols = new HashSet<>();
+    /**
+     * Find and clear every full row and column without reporting it anywhere,
+     * for searching ahead on a scratch grid. The clear masks and counts are
+     * updated as for afterPiece.
+     *
+     * @return the number of lines cleared
+     */
+    public int clearLines() {
+        findLines();
+        if (linesCleared > 0) {
+            clearCells();
+        }
+        return linesCleared;
+    }
 
-        // Find full rows (horizontal lines)
-        for (int row = 0; row < getRows(); row++) {
-            boolean isFull = true;
-            for (int col = 0; col < getCols(); col++) {
-                if (get(row, col) <= 0) {
-                    isFull = false;
-                    break;
-                }
+    /**
+     * Fill in the cleared row, column and cell masks and the line and block
+     * counts for the current state of the grid. Only looks at the board when
+     * the counts show that a line is full.
+     */
+    private void findLines() {
+        linesCleared = fullRows + fullCols;
+        // Blocks where a full row and column cross are only counted once
+        blocksCleared = fullRows * cols + fullCols * rows - fullRows * fullCols;
+
+        if (linesCleared == 0) {
+            if (clearMasksUsed) {
+                Arrays.fill(clearedRows, 0);
+                Arrays.fill(columnScratch, 0);
+                Arrays.fill(clearedCells, 0);
+                clearMasksUsed = false;
             }
-            if (isFull) {
-                fullRows.add(row);
-                sound.playSounds("clear.wav");
+            return;
+        }
+        clearMasksUsed = true;
+
+        // Find full rows (horizontal lines)
+        Arrays.fill(clearedRows, 0);
+        for (int row = 0; row < rows; row++) {
+            if (rowCounts[row] == cols) {
+                clearedRows[row >>> 6] |= 1L << row;
             }
         }
 
         // Find full columns (vertical lines)
-        for (int col = 0; col < getCols(); col++) {
-            boolean isFull = true;
-            for (int row = 0; row < getRows(); row++) {
-                if (get(row, col) <= 0) {
-                    isFull = false;
-                    break;
-                }
-            }
-            if (isFull) {
-                fullCols.add(col);
-                sound.playSounds("clear.wav");
+        Arrays.fill(columnScratch, 0);
+        for (int col = 0; col < cols; col++) {
+            if (colCounts[col] == rows) {
+                columnScratch[col >>> 6] |= 1L << col;
             }
         }
 
-        // Collect unique cells to clear (from full rows or columns)
-        Set<Pair<Integer, Integer>> clearedCells = new HashSet<>();
-        for (int row : fullRows) {
-            for (int col = 0; col < getCols(); col++) {
-                clearedCells.add(new Pair<>(row, col));
-            }
+        // Build the mask of cells to clear, a full row clears every word of it
+        for (int row = 0; row < rows; row++) {
+            boolean full = (clearedRows[row >>> 6] & (1L << row)) != 0;
+            System.arraycopy(full ? fullRow : columnScratch, 0, clearedCells, row * words, words);
         }
-        for (int col : fullCols) {
-            for (int row = 0; row < getRows(); row++) {
-                clearedCells.add(new Pair<>(row, col));
+    }
+
+    /**
+     * Empty every block in the cleared cell mask
+     */
+    private void clearCells() {
+        for (int row = 0; row < getRows(); row++) {
+            int base = row * words;
+            for (int w = 0; w < words; w++) {
+                long bits = clearedCells[base + w];
+                while (bits != 0) {
+                    set((w << 6) + Long.numberOfTrailingZeros(bits), row, 0);
+                    bits &= bits - 1;
+                }
             }
         }
+    }
 
-        int numOfLines = fullRows.size() + fullCols.size();
-        int numOfBlocks = clearedCells.size();
+    /**
+     * Get the rows cleared by the last call to afterPiece. The array is reused
+     * and must not be modified.
+     *
+     * @return mask with bit (y % 64) of word (y / 64) set for each full row
+     */
+    public long[] getClearedRows() {
+        return clearedRows;
+    }
 
-        // Update multiplier
-        if (numOfLines > 0) {
-            gm.setMultipliyer(1); // Could be enhanced to use numOfLines
-        } else {
-            gm.resetMultipliyer(0);
-        }
+    /**
+     * Get the columns cleared by the last call to afterPiece. The array is
+     * reused and must not be modified.
+     *
+     * @return mask with bit (x % 64) of word (x / 64) set for each full column
+     */
+    public long[] getClearedCols() {
+        return columnScratch;
+    }
+
+    /**
+     * Get the blocks cleared by the last call to afterPiece, in the same layout
+     * as the occupancy bitboard. The array is reused and must not be modified.
+     *
+     * @return mask of cleared blocks
+     */
+    public long[] getClearedCells() {
+        return clearedCells;
+    }
+
+    /**
+     * Check whether a block was cleared by the last call to afterPiece
+     *
+     * @param x column
+     * @param y row
+     * @return true if the block was cleared
+     */
+    public boolean isCleared(int x, int y) {
+        return (clearedCells[y * words + (x >>> 6)] & (1L << x)) != 0;
+    }
 
-        // Update score
-        gm.score(numOfBlocks, numOfLines);
+    /**
+     * Get the number of lines cleared by the last call to afterPiece
+     *
+     * @return number of full rows and columns
+     */
+    public int getLinesCleared() {
+        return linesCleared;
+    }
 
-        logger.info("Current level:{}", gm.getLevel());
-        logger.info("Num of lines cleared:{}", numOfLines);
-        logger.info("Total blocks cleared:{}", numOfBlocks);
-        logger.info("Current multipliyer:{}", gm.getMultipliyer());
-        logger.info("Current score:{}", gm.getScore());
+    /**
+     * Get the number of blocks cleared by the last call to afterPiece
+     *
+     * @return number of unique blocks cleared
+     */
+    public int getBlocksCleared() {
+        return blocksCleared;
+    }
 
-        // Clear the blocks
-        for (Pair<Integer, Integer> cor : clearedCells) {
-            gm.receiveClearedBlocks(cor);
+    /**
+     * Get the index of legal placements on this grid. It is built the first
+     * time it is asked for and kept up to date from then on.
+     *
+     * @return placement index
+     */
+    public PlacementIndex getPlacementIndex() {
+        if (placements == null) {
+            placements = new PlacementIndex(this);
         }
+        return placements;
+    }
+
+    /**
+     * Get the number of times a block has been changed, for views which need
+     * to know when to redraw
+     *
+     * @return modification count
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Get the number of longs used to store each row of the bitboard and
+     * cleared cell mask
+     *
+     * @return words per row
+     */
+    public int getWordsPerRow() {
+        return words;
     }
-}
\ No newline at end of file
+}
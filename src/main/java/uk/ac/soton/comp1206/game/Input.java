@@ -0,0 +1,75 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * The kinds of input a game can receive. The code of each input is used to store it in a replay, so existing codes
+ * must never change.
+ */
+public enum Input {
+
+    /**
+     * Place the current piece on a block
+     */
+    PLACE(0),
+
+    /**
+     * Rotate the current piece clockwise
+     */
+    ROTATE(1),
+
+    /**
+     * Rotate the current piece anticlockwise
+     */
+    ROTATE_LEFT(2),
+
+    /**
+     * Swap the current and following pieces
+     */
+    SWAP(3),
+
+    /**
+     * The timer ran out before a piece was placed
+     */
+    TIMEOUT(4),
+
+    /**
+     * Move the keyboard cursor to a block
+     */
+    CURSOR(5);
+
+    private static final Input[] BY_CODE = values();
+
+    private final int code;
+
+    Input(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Get the code this input is stored as
+     * @return code
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Check whether this input comes with the column and row of a block
+     * @return true if the input has a position
+     */
+    public boolean hasPosition() {
+        return this == PLACE || this == CURSOR;
+    }
+
+    /**
+     * Get the input stored with the given code
+     * @param code code
+     * @return input
+     * @throws IllegalArgumentException if there is no input with the code
+     */
+    public static Input fromCode(int code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Unknown input code: " + code);
+        }
+        return BY_CODE[code];
+    }
+}
@@ -0,0 +1,119 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The LogicExecutor runs every command for a game on one thread, in the order they were submitted.
+ *
+ * Commands can be submitted from any thread, the UI, the game scheduler or an AutoPlayer, through a lock-free
+ * MpscQueue, so submitting never waits on the logic thread. The logic thread works through everything queued, then
+ * calls the batch hook once before sleeping until the next command arrives. Since only the logic thread ever touches
+ * the game, the game itself needs no locking.
+ *
+ * The thread is started by the first command, so a game that is never played never starts one.
+ */
+public class LogicExecutor implements Executor {
+
+    private static final Logger logger = LogManager.getLogger(LogicExecutor.class);
+
+    private final MpscQueue<Runnable> queue = new MpscQueue<>();
+
+    private final String name;
+
+    /**
+     * Called on the logic thread after every batch of commands
+     */
+    private final Runnable afterBatch;
+
+    private final Thread thread;
+
+    private volatile boolean started = false;
+
+    private volatile boolean running = true;
+
+    /**
+     * Create an executor, without starting its thread
+     * @param name name of the logic thread
+     * @param afterBatch called on the logic thread whenever the queue has been emptied
+     */
+    public LogicExecutor(String name, Runnable afterBatch) {
+        this.name = name;
+        this.afterBatch = afterBatch;
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Run a command on the logic thread. A command submitted from the logic thread itself runs straight away, so a
+     * command can use the same methods as any other caller.
+     * @param command the command
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (Thread.currentThread() == thread) {
+            command.run();
+            return;
+        }
+        if (!running) {
+            logger.debug("{} has stopped, ignoring command", name);
+            return;
+        }
+
+        queue.offer(command);
+        if (!started) {
+            start();
+        }
+        LockSupport.unpark(thread);
+    }
+
+    private synchronized void start() {
+        if (!started) {
+            started = true;
+            thread.start();
+        }
+    }
+
+    /**
+     * Stop the logic thread once every command already submitted has run
+     */
+    public void shutdown() {
+        execute(() -> running = false);
+    }
+
+    /**
+     * Check whether the current thread is the logic thread
+     * @return true if called from the logic thread
+     */
+    public boolean isLogicThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    private void run() {
+        boolean batch = false;
+        while (running) {
+            Runnable command = queue.poll();
+            if (command == null) {
+                if (batch) {
+                    batch = false;
+                    afterBatch.run();
+                    continue;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+
+            batch = true;
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                logger.error("Game command failed", e);
+            }
+        }
+        afterBatch.run();
+        logger.debug("{} stopped", name);
+    }
+}
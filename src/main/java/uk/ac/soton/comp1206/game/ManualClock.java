@@ -0,0 +1,45 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A GameClock which only moves when it is told to, for running games headless faster than real time.
+ */
+public class ManualClock implements GameClock {
+
+    private long time;
+
+    /**
+     * Create a clock starting at 0
+     */
+    public ManualClock() {
+        this(0);
+    }
+
+    /**
+     * Create a clock starting at the given time
+     * @param time starting time in milliseconds
+     */
+    public ManualClock(long time) {
+        this.time = time;
+    }
+
+    @Override
+    public long millis() {
+        return time;
+    }
+
+    /**
+     * Set the time
+     * @param time time in milliseconds
+     */
+    public void set(long time) {
+        this.time = time;
+    }
+
+    /**
+     * Move the time forward
+     * @param millis milliseconds to move forward by
+     */
+    public void advance(long millis) {
+        time += millis;
+    }
+}
@@ -0,0 +1,80 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An unbounded lock-free queue for many producers and a single consumer.
+ *
+ * Producers swap their node in as the new head with a single atomic exchange and then link the previous head to it,
+ * so offering never blocks or retries. Only the consumer walks the list, so polling needs no atomics at all. Between
+ * the exchange and the link the new node is briefly invisible, so poll may return null for an item that is still being
+ * offered; the producer always finishes linking straight afterwards.
+ *
+ * @param <T> the type of item in the queue
+ */
+public class MpscQueue<T> {
+
+    private static final class Node<T> {
+        T value;
+        volatile Node<T> next;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * The most recently offered node, swapped by producers
+     */
+    private final AtomicReference<Node<T>> head;
+
+    /**
+     * The node before the next item to poll, only touched by the consumer
+     */
+    private Node<T> tail;
+
+    /**
+     * Create an empty queue
+     */
+    public MpscQueue() {
+        Node<T> stub = new Node<>(null);
+        head = new AtomicReference<>(stub);
+        tail = stub;
+    }
+
+    /**
+     * Add an item to the queue. Safe to call from any thread.
+     * @param value the item, not null
+     */
+    public void offer(T value) {
+        if (value == null) {
+            throw new NullPointerException("Queue items must not be null");
+        }
+        Node<T> node = new Node<>(value);
+        Node<T> previous = head.getAndSet(node);
+        previous.next = node;
+    }
+
+    /**
+     * Take the oldest item from the queue. Must only be called by the consumer.
+     * @return the item, or null if the queue is empty
+     */
+    public T poll() {
+        Node<T> next = tail.next;
+        if (next == null) {
+            return null;
+        }
+        T value = next.value;
+        next.value = null;
+        tail = next;
+        return value;
+    }
+
+    /**
+     * Check whether there is anything to poll. Must only be called by the consumer.
+     * @return true if the queue is empty
+     */
+    public boolean isEmpty() {
+        return tail.next == null;
+    }
+}
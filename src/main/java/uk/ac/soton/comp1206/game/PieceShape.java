@@ -0,0 +1,339 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A PieceShape is one rotation of one of the game pieces. Every shape is built once into a static table of
+ * 15 pieces x 4 rotations and never changes afterwards, so the same instances are shared by every GamePiece in every
+ * game running in the JVM.
+ *
+ * A shape lives inside a 3x3 box. Each shape holds its block makeup in three forms: a 9 bit mask (bit y * 3 + x), a
+ * list of the occupied cells and a bounding box, along with the per-row masks used by the Grid bitboard.
+ */
+public final class PieceShape {
+
+    /**
+     * The number of rotations of every piece
+     */
+    public static final int ROTATIONS = 4;
+
+    /**
+     * The size of the box every shape fits within
+     */
+    public static final int SIZE = 3;
+
+    /**
+     * The names of each piece, indexed by piece number
+     */
+    private static final String[] NAMES = {
+            "Line", "C", "Plus", "Dot", "Square", "L", "J", "S", "Z", "T", "X", "Corner", "Inverse Corner",
+            "Diagonal", "Double"
+    };
+
+    /**
+     * The unrotated block makeup of each piece, indexed by piece number then [x][y]
+     */
+    private static final int[][][] BLOCKS = {
+            //Line
+            {{0, 0, 0}, {1, 1, 1}, {0, 0, 0}},
+            //C
+            {{0, 0, 0}, {1, 1, 1}, {1, 0, 1}},
+            //Plus
+            {{0, 1, 0}, {1, 1, 1}, {0, 1, 0}},
+            //Dot
+            {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}},
+            //Square
+            {{1, 1, 0}, {1, 1, 0}, {0, 0, 0}},
+            //L
+            {{0, 0, 0}, {1, 1, 1}, {0, 0, 1}},
+            //J
+            {{0, 0, 1}, {1, 1, 1}, {0, 0, 0}},
+            //S
+            {{0, 0, 0}, {0, 1, 1}, {1, 1, 0}},
+            //Z
+            {{1, 1, 0}, {0, 1, 1}, {0, 0, 0}},
+            //T
+            {{1, 0, 0}, {1, 1, 0}, {1, 0, 0}},
+            //X
+            {{1, 0, 1}, {0, 1, 0}, {1, 0, 1}},
+            //Corner
+            {{0, 0, 0}, {1, 1, 0}, {1, 0, 0}},
+            //Inverse Corner
+            {{1, 0, 0}, {1, 1, 0}, {0, 0, 0}},
+            //Diagonal
+            {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}},
+            //Double
+            {{0, 1, 0}, {0, 1, 0}, {0, 0, 0}}
+    };
+
+    /**
+     * Every piece in every rotation, indexed by piece number then rotation
+     */
+    private static final PieceShape[][] TABLE = new PieceShape[BLOCKS.length][ROTATIONS];
+
+    static {
+        for (int piece = 0; piece < BLOCKS.length; piece++) {
+            int[][] blocks = BLOCKS[piece];
+            for (int rotation = 0; rotation < ROTATIONS; rotation++) {
+                TABLE[piece][rotation] = new PieceShape(piece, rotation, blocks);
+
+                //Rotate clockwise, the block at x, y moves to 2 - y, x
+                int[][] rotated = new int[SIZE][SIZE];
+                for (int x = 0; x < SIZE; x++) {
+                    for (int y = 0; y < SIZE; y++) {
+                        rotated[SIZE - 1 - y][x] = blocks[x][y];
+                    }
+                }
+                blocks = rotated;
+            }
+        }
+    }
+
+    /**
+     * The piece number of this shape
+     */
+    private final int piece;
+
+    /**
+     * The rotation of this shape, 0 to 3 clockwise turns
+     */
+    private final int rotation;
+
+    /**
+     * The value of the piece this shape belongs to
+     */
+    private final int value;
+
+    /**
+     * The block makeup of this shape, each block holding either 0 or the value of the piece
+     */
+    private final int[][] blocks;
+
+    /**
+     * The occupied blocks as a mask, bit y * 3 + x
+     */
+    private final int mask;
+
+    /**
+     * The occupied blocks of each row as a mask, bit x
+     */
+    private final int[] rowMasks = new int[SIZE];
+
+    /**
+     * The x of each occupied block
+     */
+    private final int[] cellX;
+
+    /**
+     * The y of each occupied block
+     */
+    private final int[] cellY;
+
+    /**
+     * The bounding box of the occupied blocks, inclusive
+     */
+    private final int minX, minY, maxX, maxY;
+
+    /**
+     * Build a single shape. Only used to fill the static table.
+     * @param piece piece number
+     * @param rotation number of clockwise rotations
+     * @param shape block makeup, 1 for occupied
+     */
+    private PieceShape(int piece, int rotation, int[][] shape) {
+        this.piece = piece;
+        this.rotation = rotation;
+        this.value = piece + 1;
+        this.blocks = new int[SIZE][SIZE];
+
+        int mask = 0;
+        int count = 0;
+        int minX = SIZE, minY = SIZE, maxX = -1, maxY = -1;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                if (shape[x][y] == 0) continue;
+                blocks[x][y] = value;
+                mask |= 1 << (y * SIZE + x);
+                rowMasks[y] |= 1 << x;
+                count++;
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+            }
+        }
+        this.mask = mask;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+
+        //Build the cell list in row order
+        cellX = new int[count];
+        cellY = new int[count];
+        int cell = 0;
+        for (int bit = 0; bit < SIZE * SIZE; bit++) {
+            if ((mask & (1 << bit)) == 0) continue;
+            cellX[cell] = bit % SIZE;
+            cellY[cell] = bit / SIZE;
+            cell++;
+        }
+    }
+
+    /**
+     * Get the shared shape of the given piece and rotation
+     * @param piece piece number
+     * @param rotation number of clockwise rotations, any value is wrapped to 0 to 3
+     * @return the shape
+     */
+    public static PieceShape get(int piece, int rotation) {
+        if (piece < 0 || piece >= TABLE.length) {
+            //Not a valid piece number
+            throw new IndexOutOfBoundsException("No such piece: " + piece);
+        }
+        return TABLE[piece][rotation & (ROTATIONS - 1)];
+    }
+
+    /**
+     * Get the name of the given piece
+     * @param piece piece number
+     * @return the name
+     */
+    public static String getName(int piece) {
+        return NAMES[piece];
+    }
+
+    /**
+     * Get the piece number of this shape
+     * @return piece number
+     */
+    public int getPiece() {
+        return piece;
+    }
+
+    /**
+     * Get the rotation of this shape
+     * @return number of clockwise rotations, 0 to 3
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Get the value of the piece this shape belongs to
+     * @return piece value
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * Get the shape rotated clockwise once
+     * @return the next shape
+     */
+    public PieceShape rotateRight() {
+        return TABLE[piece][(rotation + 1) & (ROTATIONS - 1)];
+    }
+
+    /**
+     * Get the shape rotated anticlockwise once
+     * @return the previous shape
+     */
+    public PieceShape rotateLeft() {
+        return TABLE[piece][(rotation + ROTATIONS - 1) & (ROTATIONS - 1)];
+    }
+
+    /**
+     * Get a copy of the block makeup of this shape. The shape itself is shared, so callers on a hot path should use
+     * the mask or cell accessors instead.
+     * @return 2D grid of the blocks, indexed [x][y]
+     */
+    public int[][] getBlocks() {
+        int[][] copy = new int[SIZE][];
+        for (int x = 0; x < SIZE; x++) {
+            copy[x] = blocks[x].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Get the occupied blocks as a mask
+     * @return mask with bit y * 3 + x set for each block
+     */
+    public int getMask() {
+        return mask;
+    }
+
+    /**
+     * Get the occupied blocks of a single row
+     * @param y row within the shape
+     * @return mask with bit x set for each block in the row
+     */
+    public int getRowMask(int y) {
+        return rowMasks[y];
+    }
+
+    /**
+     * Get the number of blocks in this shape
+     * @return block count
+     */
+    public int getCellCount() {
+        return cellX.length;
+    }
+
+    /**
+     * Get the x of a block in this shape
+     * @param cell index of the block
+     * @return x within the shape
+     */
+    public int getCellX(int cell) {
+        return cellX[cell];
+    }
+
+    /**
+     * Get the y of a block in this shape
+     * @param cell index of the block
+     * @return y within the shape
+     */
+    public int getCellY(int cell) {
+        return cellY[cell];
+    }
+
+    /**
+     * Get the left edge of the bounding box
+     * @return lowest occupied x
+     */
+    public int getMinX() {
+        return minX;
+    }
+
+    /**
+     * Get the top edge of the bounding box
+     * @return lowest occupied y
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * Get the right edge of the bounding box
+     * @return highest occupied x
+     */
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Get the bottom edge of the bounding box
+     * @return highest occupied y
+     */
+    public int getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Return the string representation of this shape
+     * @return the name and rotation of this shape
+     */
+    public String toString() {
+        return NAMES[piece] + " (" + rotation + ")";
+    }
+}
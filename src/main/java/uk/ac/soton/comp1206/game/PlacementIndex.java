@@ -0,0 +1,159 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * The PlacementIndex keeps track of every legal placement on a Grid, for every piece in every rotation.
+ *
+ * For each shape it holds a mask of the anchor blocks the shape can currently be placed on, laid out like the Grid
+ * bitboard, along with a count of them. The Grid tells the index whenever a block is filled or emptied, and only the
+ * anchors whose footprint covers that block are updated, so asking whether a piece can be placed anywhere is O(1).
+ *
+ * Anchors are the blocks a player can click, so only positions on the board are indexed.
+ */
+public class PlacementIndex {
+
+    /**
+     * The number of shapes indexed, every piece in every rotation
+     */
+    private static final int SHAPES = GamePiece.PIECES * PieceShape.ROTATIONS;
+
+    private final Grid grid;
+    private final int cols;
+    private final int rows;
+    private final int words;
+
+    /**
+     * The legal anchors of each shape, indexed by piece * 4 + rotation
+     */
+    private final long[][] legal = new long[SHAPES][];
+
+    /**
+     * The number of legal anchors of each shape
+     */
+    private final int[] shapeCounts = new int[SHAPES];
+
+    /**
+     * The number of legal anchors of each piece, over all of its rotations
+     */
+    private final int[] pieceCounts = new int[GamePiece.PIECES];
+
+    /**
+     * The number of pieces with at least one legal anchor
+     */
+    private int playablePieces = 0;
+
+    /**
+     * Build an index of the current state of the given grid
+     * @param grid the grid to index
+     */
+    PlacementIndex(Grid grid) {
+        this.grid = grid;
+        this.cols = grid.getCols();
+        this.rows = grid.getRows();
+        this.words = grid.getWordsPerRow();
+
+        for (int s = 0; s < SHAPES; s++) {
+            legal[s] = new long[rows * words];
+            PieceShape shape = PieceShape.get(s / PieceShape.ROTATIONS, s % PieceShape.ROTATIONS);
+            for (int y = 0; y < rows; y++) {
+                for (int x = 0; x < cols; x++) {
+                    if (grid.canPlayShape(shape, x, y)) {
+                        add(s, x, y);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Called by the grid when a block changes between filled and empty
+     * @param x column
+     * @param y row
+     * @param occupied true if the block has just been filled
+     */
+    void cellChanged(int x, int y, boolean occupied) {
+        for (int s = 0; s < SHAPES; s++) {
+            PieceShape shape = PieceShape.get(s / PieceShape.ROTATIONS, s % PieceShape.ROTATIONS);
+
+            // Every anchor that would put one of the shape's blocks on this block
+            for (int cell = 0; cell < shape.getCellCount(); cell++) {
+                int ax = x - shape.getCellX(cell) + 1;
+                int ay = y - shape.getCellY(cell) + 1;
+                if (ax < 0 || ax >= cols || ay < 0 || ay >= rows) continue;
+
+                boolean isLegal = isSet(s, ax, ay);
+                if (occupied && isLegal) {
+                    remove(s, ax, ay);
+                } else if (!occupied && !isLegal && grid.canPlayShape(shape, ax, ay)) {
+                    add(s, ax, ay);
+                }
+            }
+        }
+    }
+
+    private boolean isSet(int s, int x, int y) {
+        return (legal[s][y * words + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    private void add(int s, int x, int y) {
+        legal[s][y * words + (x >>> 6)] |= 1L << x;
+        shapeCounts[s]++;
+        if (pieceCounts[s / PieceShape.ROTATIONS]++ == 0) {
+            playablePieces++;
+        }
+    }
+
+    private void remove(int s, int x, int y) {
+        legal[s][y * words + (x >>> 6)] &= ~(1L << x);
+        shapeCounts[s]--;
+        if (--pieceCounts[s / PieceShape.ROTATIONS] == 0) {
+            playablePieces--;
+        }
+    }
+
+    /**
+     * Check whether a shape can be placed on the given anchor
+     * @param shape the shape
+     * @param x column
+     * @param y row
+     * @return true if the placement is legal
+     */
+    public boolean isLegal(PieceShape shape, int x, int y) {
+        if (x < 0 || x >= cols || y < 0 || y >= rows) return false;
+        return isSet(shape.getPiece() * PieceShape.ROTATIONS + shape.getRotation(), x, y);
+    }
+
+    /**
+     * Get the legal anchors of a shape, laid out like the Grid bitboard. The array is live and must not be modified.
+     * @param shape the shape
+     * @return mask of legal anchors
+     */
+    public long[] getLegalAnchors(PieceShape shape) {
+        return legal[shape.getPiece() * PieceShape.ROTATIONS + shape.getRotation()];
+    }
+
+    /**
+     * Get the number of anchors a shape can be placed on
+     * @param shape the shape
+     * @return number of legal anchors
+     */
+    public int countLegal(PieceShape shape) {
+        return shapeCounts[shape.getPiece() * PieceShape.ROTATIONS + shape.getRotation()];
+    }
+
+    /**
+     * Check whether a piece can be placed anywhere, in any rotation
+     * @param piece piece number
+     * @return true if there is at least one legal placement
+     */
+    public boolean canPlace(int piece) {
+        return pieceCounts[piece] > 0;
+    }
+
+    /**
+     * Check whether any piece at all can still be placed
+     * @return true if at least one piece has a legal placement
+     */
+    public boolean hasAnyMove() {
+        return playablePieces > 0;
+    }
+}
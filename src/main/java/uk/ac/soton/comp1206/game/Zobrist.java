@@ -0,0 +1,77 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Zobrist keys for hashing game positions.
+ *
+ * Every value of every block of a grid and every piece in each slot of the queue has its own random 64 bit key, so
+ * positions which differ only in the colour of a block hash differently. The hash of a position is the XOR of the keys
+ * of everything in it, so changing a single block only needs two XORs to update it, and the same position reached
+ * through different moves always has the same hash.
+ *
+ * Keys are derived from their index with the SplitMix64 finaliser rather than kept in a table, so there is a key for
+ * every block of a grid of any size.
+ */
+public final class Zobrist {
+
+    /**
+     * The number of slots in the piece queue, the current and following pieces
+     */
+    public static final int SLOTS = 2;
+
+    private static final long SEED = 0x5DEECE66D2B7E151L;
+
+    private Zobrist() {
+    }
+
+    /**
+     * Get the key of a block holding a value
+     * @param index index of the block, y * cols + x
+     * @param value value of the block
+     * @return key, or 0 for an empty block
+     */
+    public static long cell(int index, int value) {
+        if (value == 0) {
+            return 0;
+        }
+        return mix(SEED + (((long) index << 8 | (value & 0xFF)) + 1L) * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Get the key of a piece in a slot of the queue
+     * @param slot 0 for the current piece, 1 for the following piece
+     * @param piece piece number
+     * @return key
+     */
+    public static long piece(int slot, int piece) {
+        return mix(~SEED - (slot * GamePiece.PIECES + piece + 1L) * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Get the key of the current and following pieces together
+     * @param current current piece number
+     * @param following following piece number
+     * @return key
+     */
+    public static long queue(int current, int following) {
+        return piece(0, current) ^ piece(1, following);
+    }
+
+    /**
+     * Get a key for any other small value that is part of a position, such as the multiplier or search depth
+     * @param kind which value this is, so different values do not share keys
+     * @param value the value
+     * @return key
+     */
+    public static long value(int kind, int value) {
+        return mix(SEED ^ ((long) kind << 32 | (value & 0xFFFFFFFFL)) * 0xD1B54A32D192ED03L);
+    }
+
+    /**
+     * The SplitMix64 finaliser, spreading every bit of the input over the whole output
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
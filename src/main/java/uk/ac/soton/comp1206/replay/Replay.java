@@ -0,0 +1,208 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import uk.ac.soton.comp1206.event.GameEventListener;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GameRandom;
+import uk.ac.soton.comp1206.game.Input;
+import uk.ac.soton.comp1206.game.ManualClock;
+
+/**
+ * A Replay is a recorded game, read back from the format written by a ReplayRecorder. It can be played again on a
+ * headless GameEngine as fast as the CPU allows, giving exactly the same game as the one recorded.
+ */
+public class Replay {
+
+    private final int cols;
+    private final int rows;
+    private final long seed;
+    private final long startTime;
+
+    /**
+     * The inputs, in the order they arrived
+     */
+    private final Input[] inputs;
+    private final long[] times;
+    private final int[] xs;
+    private final int[] ys;
+
+    private Replay(int cols, int rows, long seed, long startTime, Input[] inputs, long[] times, int[] xs, int[] ys) {
+        this.cols = cols;
+        this.rows = rows;
+        this.seed = seed;
+        this.startTime = startTime;
+        this.inputs = inputs;
+        this.times = times;
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    /**
+     * Read a replay from a file
+     * @param path the file
+     * @return the replay
+     * @throws IOException if the file cannot be read or is not a valid replay
+     */
+    public static Replay read(Path path) throws IOException {
+        return read(Files.readAllBytes(path));
+    }
+
+    /**
+     * Read a replay from bytes
+     * @param data the replay
+     * @return the replay
+     * @throws IOException if the data is not a valid replay
+     */
+    public static Replay read(byte[] data) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            if (in.getInt() != ReplayRecorder.MAGIC) {
+                throw new IOException("Not a replay");
+            }
+            int version = in.get();
+            if (version != ReplayRecorder.VERSION) {
+                throw new IOException("Unsupported replay version " + version);
+            }
+
+            int cols = (int) Varint.read(in);
+            int rows = (int) Varint.read(in);
+            long seed = in.getLong();
+            long startTime = Varint.readSigned(in);
+
+            // Every input is at least a byte, so this is enough room for all of them
+            int capacity = in.remaining();
+            Input[] inputs = new Input[capacity];
+            long[] times = new long[capacity];
+            int[] xs = new int[capacity];
+            int[] ys = new int[capacity];
+
+            int count = 0;
+            long time = startTime;
+            while (in.hasRemaining()) {
+                long value = Varint.read(in);
+                Input input = Input.fromCode((int) (value & ((1 << ReplayRecorder.CODE_BITS) - 1)));
+                long delta = value >>> ReplayRecorder.CODE_BITS;
+                time += (delta >>> 1) ^ -(delta & 1);
+
+                inputs[count] = input;
+                times[count] = time;
+                if (input.hasPosition()) {
+                    xs[count] = (int) Varint.read(in);
+                    ys[count] = (int) Varint.read(in);
+                }
+                count++;
+            }
+
+            return new Replay(cols, rows, seed, startTime, Arrays.copyOf(inputs, count), Arrays.copyOf(times, count),
+                Arrays.copyOf(xs, count), Arrays.copyOf(ys, count));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Replay is corrupt", e);
+        }
+    }
+
+    /**
+     * Create a new engine ready to play this replay, with the recorded size and seed and a clock set to the recorded
+     * starting time. The engine has not been started.
+     * @param clock the clock for the engine, which will be set to the starting time
+     * @return the engine
+     */
+    public GameEngine createEngine(ManualClock clock) {
+        clock.set(startTime);
+        return new GameEngine(cols, rows, clock, new GameRandom(seed));
+    }
+
+    /**
+     * Play the whole replay on a new headless engine
+     * @param listeners listeners to receive the events of the game as it is played
+     * @return the engine, in the state the recorded game ended in
+     */
+    public GameEngine play(GameEventListener... listeners) {
+        ManualClock clock = new ManualClock();
+        GameEngine engine = createEngine(clock);
+        for (GameEventListener listener : listeners) {
+            engine.addListener(listener);
+        }
+
+        engine.start();
+        for (int i = 0; i < inputs.length; i++) {
+            apply(engine, clock, i);
+        }
+        return engine;
+    }
+
+    /**
+     * Replay a single input on an engine
+     * @param engine the engine, playing this replay
+     * @param clock the engine's clock
+     * @param index index of the input
+     */
+    public void apply(GameEngine engine, ManualClock clock, int index) {
+        clock.set(times[index]);
+        switch (inputs[index]) {
+            case PLACE:
+                engine.place(xs[index], ys[index]);
+                break;
+            case ROTATE:
+                engine.rotate();
+                break;
+            case ROTATE_LEFT:
+                engine.rotateLeft();
+                break;
+            case SWAP:
+                engine.swap();
+                break;
+            case TIMEOUT:
+                engine.tick();
+                break;
+            case CURSOR:
+                engine.moveCursor(xs[index], ys[index]);
+                break;
+        }
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Get the number of inputs recorded
+     * @return number of inputs
+     */
+    public int size() {
+        return inputs.length;
+    }
+
+    public Input getInput(int index) {
+        return inputs[index];
+    }
+
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    public int getX(int index) {
+        return xs[index];
+    }
+
+    public int getY(int index) {
+        return ys[index];
+    }
+}
@@ -0,0 +1,155 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.soton.comp1206.event.GameEventListener;
+import uk.ac.soton.comp1206.game.EngineState;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.ManualClock;
+
+/**
+ * The ReplayPlayer steps through a Replay on a headless GameEngine and can seek to any input, backwards or forwards.
+ *
+ * Every time it passes a multiple of the checkpoint interval for the first time it saves the full state of the
+ * engine. Seeking restores the closest checkpoint at or before the target and plays forward from there, so no seek
+ * replays more than one interval of inputs once the checkpoints have been made.
+ */
+public class ReplayPlayer {
+
+    /**
+     * The number of inputs between checkpoints by default
+     */
+    public static final int DEFAULT_INTERVAL = 64;
+
+    private final Replay replay;
+    private final int interval;
+    private final ManualClock clock = new ManualClock();
+    private final GameEngine engine;
+
+    /**
+     * The saved states, checkpoint n is the state after n * interval inputs
+     */
+    private final List<EngineState> checkpoints = new ArrayList<>();
+
+    /**
+     * The number of inputs played so far
+     */
+    private int position = 0;
+
+    /**
+     * Create a player at the start of a replay, with checkpoints at the default interval
+     * @param replay the replay
+     */
+    public ReplayPlayer(Replay replay) {
+        this(replay, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Create a player at the start of a replay
+     * @param replay the replay
+     * @param interval number of inputs between checkpoints
+     */
+    public ReplayPlayer(Replay replay, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be at least 1: " + interval);
+        }
+        this.replay = replay;
+        this.interval = interval;
+        this.engine = replay.createEngine(clock);
+
+        engine.start();
+        checkpoints.add(engine.saveState());
+    }
+
+    /**
+     * Add a listener to the engine. It receives the events of every input played, and a full set of events whenever
+     * a checkpoint is restored.
+     * @param listener the listener
+     */
+    public void addListener(GameEventListener listener) {
+        engine.addListener(listener);
+    }
+
+    /**
+     * Play the next input
+     * @return false if the end of the replay has been reached
+     */
+    public boolean step() {
+        if (position >= replay.size()) {
+            return false;
+        }
+
+        replay.apply(engine, clock, position++);
+        if (position % interval == 0 && position / interval == checkpoints.size()) {
+            checkpoints.add(engine.saveState());
+        }
+        return true;
+    }
+
+    /**
+     * Move to the point just after the given number of inputs have been played
+     * @param target number of inputs, between 0 and the size of the replay
+     */
+    public void seek(int target) {
+        if (target < 0 || target > replay.size()) {
+            throw new IndexOutOfBoundsException("No such position in replay: " + target);
+        }
+
+        // Jump to the closest checkpoint unless playing on from here is at least as quick
+        int checkpoint = Math.min(target / interval, checkpoints.size() - 1);
+        if (target < position || position < checkpoint * interval) {
+            EngineState state = checkpoints.get(checkpoint);
+            clock.set(state.getTime());
+            engine.restoreState(state);
+            position = checkpoint * interval;
+        }
+
+        while (position < target) {
+            step();
+        }
+    }
+
+    /**
+     * Move to the last input played before the given time
+     * @param time time on the recorded clock
+     */
+    public void seekTime(long time) {
+        // Binary search for the first input after the time
+        int low = 0;
+        int high = replay.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (replay.getTime(mid) <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        seek(low);
+    }
+
+    /**
+     * Get the number of inputs played so far
+     * @return position in the replay
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Get the engine the replay is played on
+     * @return engine
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Get the replay being played
+     * @return replay
+     */
+    public Replay getReplay() {
+        return replay;
+    }
+}
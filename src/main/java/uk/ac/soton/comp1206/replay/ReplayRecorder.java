@@ -0,0 +1,122 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import uk.ac.soton.comp1206.event.InputListener;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.Input;
+
+/**
+ * The ReplayRecorder records every input to a GameEngine into a compact binary replay, which a Replay can play back
+ * exactly.
+ *
+ * A replay starts with the magic number 0x5452504C ("TRPL"), a format version byte, the number of columns and rows as
+ * varints, the seed of the engine's GameRandom as 8 bytes and the starting time on the engine's clock as a signed
+ * varint. Every input follows as a single varint holding the input code in its low 3 bits and the time since the
+ * previous input, ZigZag encoded, above them. Inputs with a position are followed by the column and row as varints.
+ * Most inputs take one or two bytes, so a whole game is usually a few hundred bytes.
+ */
+public class ReplayRecorder implements InputListener {
+
+    /**
+     * Magic number at the start of every replay
+     */
+    public static final int MAGIC = 0x5452504C;
+
+    /**
+     * Version of the replay format
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The number of low bits of each input holding its code
+     */
+    static final int CODE_BITS = 3;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+
+    /**
+     * The time of the last input, to store the next one relative to it
+     */
+    private long last;
+
+    /**
+     * Whether the engine has started and the header has been written
+     */
+    private boolean recording = false;
+
+    /**
+     * Create a recorder and attach it to an engine. It must be attached before the engine starts.
+     * @param engine the engine to record
+     */
+    public ReplayRecorder(GameEngine engine) {
+        engine.addInputListener(this);
+    }
+
+    @Override
+    public synchronized void started(GameEngine engine, long time) {
+        out.reset();
+        ByteBuffer header = ByteBuffer.allocate(13);
+        header.putInt(MAGIC).put((byte) VERSION).putLong(engine.getRandom().getState());
+
+        out.write(header.array(), 0, 5);
+        Varint.write(out, engine.getGrid().getCols());
+        Varint.write(out, engine.getGrid().getRows());
+        out.write(header.array(), 5, 8);
+        Varint.writeSigned(out, time);
+
+        last = time;
+        recording = true;
+    }
+
+    @Override
+    public synchronized void inputReceived(Input input, int x, int y, long time) {
+        if (!recording) return;
+
+        long delta = time - last;
+        last = time;
+        Varint.write(out, (((delta << 1) ^ (delta >> 63)) << CODE_BITS) | input.getCode());
+        if (input.hasPosition()) {
+            Varint.write(out, x);
+            Varint.write(out, y);
+        }
+    }
+
+    /**
+     * Stop recording and throw away anything recorded, for a game which does not start from a seed and an empty
+     * board, such as one resumed from a snapshot, and so cannot be replayed
+     */
+    public synchronized void stop() {
+        recording = false;
+        out.reset();
+    }
+
+    /**
+     * Get the replay recorded so far
+     * @return the replay as bytes
+     */
+    public synchronized byte[] toByteArray() {
+        return out.toByteArray();
+    }
+
+    /**
+     * Get the size of the replay recorded so far
+     * @return size in bytes
+     */
+    public synchronized int size() {
+        return out.size();
+    }
+
+    /**
+     * Write the replay recorded so far to a file, replacing anything already there
+     * @param path the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        Files.write(path, toByteArray());
+    }
+}
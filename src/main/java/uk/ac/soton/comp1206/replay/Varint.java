@@ -0,0 +1,67 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Variable length encoding of whole numbers, seven bits per byte with the top bit set on every byte but the last, as
+ * used by protocol buffers. Small values take a single byte. Signed values are ZigZag encoded first so that small
+ * negative values are small too.
+ */
+public final class Varint {
+
+    private Varint() {
+    }
+
+    /**
+     * Write an unsigned value
+     * @param out where to write
+     * @param value the value, treated as unsigned
+     */
+    public static void write(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Write a signed value
+     * @param out where to write
+     * @param value the value
+     */
+    public static void writeSigned(ByteArrayOutputStream out, long value) {
+        write(out, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Read an unsigned value
+     * @param in where to read from
+     * @return the value
+     * @throws IllegalArgumentException if the value is longer than 10 bytes
+     * @throws BufferUnderflowException if the buffer ends part way through the value
+     */
+    public static long read(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is too long");
+    }
+
+    /**
+     * Read a signed value
+     * @param in where to read from
+     * @return the value
+     */
+    public static long readSigned(ByteBuffer in) {
+        long value = read(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -1,17 +1,20 @@
 package uk.ac.soton.comp1206.scene;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import javafx.animation.FadeTransition;
+import javafx.animation.AnimationTimer;
 import javafx.animation.FillTransition;
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
 import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.input.KeyCode;
@@ -25,13 +28,15 @@ import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
 import javafx.util.Duration;
-import uk.ac.soton.comp1206.component.GameBlock;
+import uk.ac.soton.comp1206.component.GameBlockCoordinate;
 import uk.ac.soton.comp1206.component.GameBoard;
 import uk.ac.soton.comp1206.component.PieceBoard;
 import uk.ac.soton.comp1206.event.Multimedia;
 import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.scores.ScoreRepository;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
+import uk.ac.soton.comp1206.ui.KeyboardInput;
 
 /**
  * The Single Player challenge scene. Holds the UI for the single player
@@ -40,21 +45,101 @@ import uk.ac.soton.comp1206.ui.GameWindow;
 public class ChallengeScene extends BaseScene {
 
     private static final Logger logger = LogManager.getLogger(MenuScene.class);
+
+    /**
+     * The number of columns and rows of a board unless the tetrecs.cols and
+     * tetrecs.rows system properties say otherwise
+     */
+    public static final int DEFAULT_SIZE = 5;
+
     protected Game game;
 
+    /**
+     * The size of the board
+     */
+    private final int cols, rows;
+
+    /**
+     * Whether to continue the saved game instead of starting a new one
+     */
+    private final boolean resume;
+
     Timeline timeline;
     Rectangle bar;
     KeyFrame frame;
     KeyValue widthValue;
     FillTransition ft;
 
+    /**
+     * Turns held keys into moves at a steady rate
+     */
+    private KeyboardInput keyboard;
+
+    /**
+     * The board the game is shown on
+     */
+    private GameBoard board;
+
+    /**
+     * Drops held keys when the window loses focus, removed when the game is left
+     */
+    private final ChangeListener<Boolean> focusListener = (observable, oldValue, focused) -> {
+        if (!focused) {
+            keyboard.reset();
+        }
+    };
+
+    /**
+     * Sends the keyboard input and applies the changes made by the game logic
+     * once per frame
+     */
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (keyboard != null) {
+                keyboard.update(now);
+            }
+            game.pulse();
+        }
+    };
+
     /**
      * Create a new Single Player challenge scene
      * 
      * @param gameWindow the Game Window
      */
     public ChallengeScene(GameWindow gameWindow) {
+        this(gameWindow, Integer.getInteger("tetrecs.cols", DEFAULT_SIZE), Integer.getInteger("tetrecs.rows", DEFAULT_SIZE));
+    }
+
+    /**
+     * Create a new Single Player challenge scene on a board of the given size
+     * 
+     * @param gameWindow the Game Window
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    public ChallengeScene(GameWindow gameWindow, int cols, int rows) {
+        this(gameWindow, cols, rows, false);
+    }
+
+    /**
+     * Create a Single Player challenge scene which continues the saved game,
+     * or starts a new game if it cannot be read
+     * 
+     * @param gameWindow the Game Window
+     * @param resume true to continue the saved game
+     */
+    public ChallengeScene(GameWindow gameWindow, boolean resume) {
+        this(gameWindow, Integer.getInteger("tetrecs.cols", DEFAULT_SIZE), Integer.getInteger("tetrecs.rows", DEFAULT_SIZE),
+            resume);
+    }
+
+    private ChallengeScene(GameWindow gameWindow, int cols, int rows, boolean resume) {
         super(gameWindow);
+        this.cols = cols;
+        this.rows = rows;
+        this.resume = resume;
         logger.info("Creating Challenge Scene");
         Multimedia.playBackgroundMusic("game.wav");
     }
@@ -115,11 +200,12 @@ public class ChallengeScene extends BaseScene {
         var highScoreText = new Text();
         highScoreText.getStyleClass().add("lives");
         highScoreText.setTextAlignment(TextAlignment.CENTER);
-        try {
-            highScoreText.setText(String.valueOf(game.getHighScore()));
-        } catch (NumberFormatException | IOException e1) {
-            e1.printStackTrace();
-        }
+        ScoreRepository.getDefault().load().thenRunAsync(() -> {
+            // Unless the score has already beaten it
+            if (!highScoreText.textProperty().isBound()) {
+                highScoreText.setText(String.valueOf(game.getHighScore()));
+            }
+        }, Platform::runLater);
 
         info.getChildren().addAll(multipliyerLabel, multipliyerText, scoreLabel, scoreText, livesLabel, livesText,
                 levelLabel, levelText, highScoreLabel, highScoreText);
@@ -158,91 +244,83 @@ public class ChallengeScene extends BaseScene {
         mainPane.setTop(titleContainer);
         mainPane.setBottom(timerBarSection);
 
-        var board = new GameBoard(game.getGrid(), gameWindow.getWidth() / 2, gameWindow.getWidth() / 2);
+        // Fit the longest side of the board into half the window, keeping the blocks square
+        double blockSize = gameWindow.getWidth() / 2.0 / Math.max(cols, rows);
+        board = new GameBoard(game.getGrid(), blockSize * cols, blockSize * rows);
         mainPane.setCenter(board);
 
-        // Trigger animation when lines are cleared
-        game.setOnClear(cor -> {
-            Platform.runLater(() -> {
-                GameBlock block = board.getBlock(cor.getKey(), cor.getValue());
-
-                FadeTransition fadeOut = new FadeTransition(Duration.millis(1500), block);
-                fadeOut.setFromValue(1);
-                fadeOut.setToValue(0);
-                fadeOut.setCycleCount(1);
-
-                fadeOut.setOnFinished(e -> {
-                    board.setBlockToZero(cor.getKey(), cor.getValue());
-
-                    FadeTransition fadeIn = new FadeTransition(Duration.millis(1), block);
-                    fadeIn.setFromValue(0);
-                    fadeIn.setToValue(1);
-                    fadeIn.play();
-                });
-
-                fadeOut.play();
-            });
+        // Trigger one animation for every block cleared by a placement
+        game.setOnClear(cleared -> {
+            board.fadeOut(cleared);
         });
 
+        // Draw the keyboard cursor over the board
+        game.setOnCursorMove(board::moveCursor);
+
         // Handle block on gameboard grid being clicked
         board.setOnBlockClick(this::blockClicked);
 
-        // Listener for updating delay on progress bar
+        // Listener for updating delay on progress bar, only called when the level changes it
         game.setOnDelayChange((delay) -> {
-            Platform.runLater(() -> {
-                widthValue = new KeyValue(bar.widthProperty(), 0);
-                logger.info("Current delay: {}", delay);
-                frame = new KeyFrame(Duration.millis(delay.doubleValue()), widthValue);
-                timeline = new Timeline(frame);
-                timeline.setCycleCount(Timeline.INDEFINITE);
-                timeline.play();
-
-                ft = new FillTransition(Duration.millis(delay.doubleValue()), bar, Color.GREEN, Color.RED);
-                ft.setCycleCount(Timeline.INDEFINITE);
-                ft.play();
-            });
+            double millis = delay.get();
+            // Replace the animation for the previous delay
+            if (timeline != null) {
+                timeline.stop();
+                ft.stop();
+            }
+            logger.info("Current delay: {}", millis);
+            widthValue = new KeyValue(bar.widthProperty(), 0);
+            frame = new KeyFrame(Duration.millis(millis), widthValue);
+            timeline = new Timeline(frame);
+            ft = new FillTransition(Duration.millis(millis), bar, Color.GREEN, Color.RED);
+        });
+
+        // Listener for restarting the progress bar whenever the timer restarts
+        game.setOnTimerReset((remaining) -> {
+            if (timeline == null) {
+                return;
+            }
+            // Start part way through if less than the full delay is left
+            Duration from = timeline.getCycleDuration().subtract(Duration.millis(remaining));
+            if (from.lessThan(Duration.ZERO)) {
+                from = Duration.ZERO;
+            }
+            bar.setWidth(gameWindow.getWidth());
+            timeline.playFrom(from);
+            ft.playFrom(from);
         });
 
         // Listener for updating highscore during game if player beats it
         game.setOnHighScore(() -> {
-            Platform.runLater(() -> {
-                highScoreText.textProperty().bind(game.score().asString());
-            });
+            highScoreText.textProperty().bind(game.score().asString());
         });
 
         // Listener so scene knows when game has ended
         game.setOnGameOver(() -> {
-            Platform.runLater(() -> {
+            pulse.stop();
+            board.dispose();
+            getScene().getWindow().focusedProperty().removeListener(focusListener);
+            if (timeline != null) {
                 timeline.stop();
-                gameWindow.startScores();
-            });
+            }
+            gameWindow.startScores(game.getScore());
         });
 
         // Listener to rotate
         game.addListener2((pieceToRotate) -> {
-            Platform.runLater(() -> {
-                pbSmall.addPieceToGrid(pieceToRotate);
-            });
+            pbSmall.addPieceToGrid(pieceToRotate);
         });
 
         // Listener to add game piece to 3x3 grids
         game.addListener((piece, piece2) -> {
-            Platform.runLater(() -> {
-                pb.addPieceToGrid(piece);
-                pbSmall.addPieceToGrid(piece2);
-            });
+            pb.addPieceToGrid(piece);
+            pbSmall.addPieceToGrid(piece2);
         });
 
         // Listener to update the game board with the current piece
         board.setOnMouseClicked(e -> {
             if (e.getButton() == MouseButton.SECONDARY) {
                 game.rotateCurrentPiece();
-            } else if (e.getButton() == MouseButton.PRIMARY) {
-                if (game.temp) {
-                    timeline.stop();
-                    bar.setWidth(gameWindow.getWidth());
-                    timeline.play();
-                }
             }
         });
 
@@ -268,10 +346,10 @@ public class ChallengeScene extends BaseScene {
     /**
      * Handle when a block is clicked
      * 
-     * @param gameBlock the Game Block that was clocked
+     * @param block the position of the Game Block that was clicked
      */
-    private void blockClicked(GameBlock gameBlock) {
-        game.blockClicked(gameBlock);
+    private void blockClicked(GameBlockCoordinate block) {
+        game.blockClicked(block.getX(), block.getY());
     }
 
     /**
@@ -281,7 +359,8 @@ public class ChallengeScene extends BaseScene {
         logger.info("Starting a new challenge");
 
         // Start new game
-        game = new Game(5, 5);
+        game = new Game(cols, rows);
+        game.setAutosave(Game.getSaveFile());
     }
 
     /**
@@ -290,7 +369,8 @@ public class ChallengeScene extends BaseScene {
     @Override
     public void initialise() {
         logger.info("Initialising Challenge");
-        game.start();
+        pulse.start();
+        startOrResume();
 
         Set<KeyCode> moveRightKeys = Set.of(KeyCode.D, KeyCode.RIGHT);
         Set<KeyCode> moveDownKeys = Set.of(KeyCode.S, KeyCode.DOWN);
@@ -301,43 +381,51 @@ public class ChallengeScene extends BaseScene {
         Set<KeyCode> rotateRightKeys = Set.of(KeyCode.E, KeyCode.C, KeyCode.CLOSE_BRACKET);
         Set<KeyCode> rotateLeftKeys = Set.of(KeyCode.Q, KeyCode.Z, KeyCode.OPEN_BRACKET);
 
-        getScene().setOnKeyPressed(e -> {
-            KeyCode code = e.getCode();
-
-            if (code == KeyCode.ESCAPE) {
-                handleEscape();
-                return; // Stop processing after escape
-            }
+        // Held keys are sampled once per frame, so moves are coalesced however fast the keys repeat
+        keyboard = new KeyboardInput(game::move, Math.max(cols, rows));
+        keyboard.bindMove(moveRightKeys, 1, 0);
+        keyboard.bindMove(moveDownKeys, 0, 1);
+        keyboard.bindMove(moveLeftKeys, -1, 0);
+        keyboard.bindMove(moveUpKeys, 0, -1);
+        keyboard.bindAction(Set.of(KeyCode.ESCAPE), this::handleEscape);
+        keyboard.bindAction(placePieceKeys, game::keyboardControlsEnter);
+        keyboard.bindAction(swapPieceKeys, game::swapCurrentPiece);
+        keyboard.bindAction(rotateRightKeys, game::rotateCurrentPiece);
+        keyboard.bindAction(rotateLeftKeys, game::rotateCurrentPieceLeft);
+
+        getScene().setOnKeyPressed(keyboard::keyPressed);
+        getScene().setOnKeyReleased(keyboard::keyReleased);
+        getScene().getWindow().focusedProperty().addListener(focusListener);
+    }
 
-            if (moveRightKeys.contains(code)) {
-                game.keyboardControlsD();
-            } else if (moveDownKeys.contains(code)) {
-                game.keyboardControlsS();
-            } else if (moveLeftKeys.contains(code)) {
-                game.keyboardControlsA();
-            } else if (moveUpKeys.contains(code)) {
-                game.keyboardControlsW();
-            } else if (placePieceKeys.contains(code)) {
-                game.keyboardControlsEnter();
-                if (game.temp) {
-                    timeline.stop();
-                    bar.setWidth(gameWindow.getWidth());
-                    timeline.play();
-                }
-            } else if (swapPieceKeys.contains(code)) {
-                game.swapCurrentPiece();
-            } else if (rotateRightKeys.contains(code)) {
-                game.rotateCurrentPiece();
-            } else if (rotateLeftKeys.contains(code)) {
-                game.rotateCurrentPieceLeft();
+    /**
+     * Resume the saved game if the player chose to and there is one, otherwise
+     * start a new game
+     */
+    private void startOrResume() {
+        File save = Game.getSaveFile();
+        if (resume && save.exists()) {
+            try {
+                game.resume(Files.readAllBytes(save.toPath()));
+                return;
+            } catch (IOException e) {
+                logger.error("Could not resume saved game, starting a new one", e);
+                save.delete();
             }
-        });
+        }
+        game.start();
     }
 
     private void handleEscape() {
         Multimedia.stopBackgroundMusic();
-        game.timer.cancel();
-        timeline.stop();
+        game.autosave();
+        game.stop();
+        pulse.stop();
+        board.dispose();
+        getScene().getWindow().focusedProperty().removeListener(focusListener);
+        if (timeline != null) {
+            timeline.stop();
+        }
         bar.setWidth(gameWindow.getWidth());
         gameWindow.startMenu();
     }
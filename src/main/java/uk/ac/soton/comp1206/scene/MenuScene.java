@@ -16,6 +16,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import uk.ac.soton.comp1206.event.Multimedia;
+import uk.ac.soton.comp1206.game.Game;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
@@ -90,6 +91,10 @@ public class MenuScene extends BaseScene {
         var startButton = new Text("Play");
         startButton.getStyleClass().add("menuItem");
 
+        //Resume button, only when there is a saved game
+        var resumeButton = new Text("Resume");
+        resumeButton.getStyleClass().add("menuItem");
+
         //Scores button
         var scoreButton = new Text("Scores");
         scoreButton.getStyleClass().add("menuItem");
@@ -104,7 +109,11 @@ public class MenuScene extends BaseScene {
         exitButton.getStyleClass().add("menuItem");
         mainPane.setBottom(exitButton);
 
-        buttons.getChildren().addAll(startButton, instructionsButton, scoreButton, exitButton);
+        buttons.getChildren().add(startButton);
+        if (Game.getSaveFile().exists()) {
+            buttons.getChildren().add(resumeButton);
+        }
+        buttons.getChildren().addAll(instructionsButton, scoreButton, exitButton);
         mainPane.setCenter(buttons);
 
         startButton.setOnMouseClicked(e -> {
@@ -112,6 +121,11 @@ public class MenuScene extends BaseScene {
             gameWindow.startChallenge();
         });
 
+        resumeButton.setOnMouseClicked(e -> {
+            Multimedia.stopBackgroundMusic();
+            gameWindow.resumeChallenge();
+        });
+
         instructionsButton.setOnMouseClicked(e -> {
             gameWindow.startInstructions();
         });
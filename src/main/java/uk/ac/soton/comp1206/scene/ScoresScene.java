@@ -1,19 +1,12 @@
 package uk.ac.soton.comp1206.scene;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.Comparator;
 import java.util.Optional;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import javafx.application.Platform;
 import javafx.beans.property.ListProperty;
-import javafx.beans.property.SimpleListProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.TextField;
@@ -28,7 +21,9 @@ import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
 import javafx.util.Pair;
 import uk.ac.soton.comp1206.event.Multimedia;
-import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.scores.MergedScores;
+import uk.ac.soton.comp1206.scores.RemoteScores;
+import uk.ac.soton.comp1206.scores.ScoreRepository;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 import uk.ac.soton.comp1206.ui.ScoresList;
@@ -36,37 +31,52 @@ import uk.ac.soton.comp1206.ui.ScoresList;
 public class ScoresScene extends BaseScene {
     private static final Logger logger = LogManager.getLogger(MenuScene.class);
 
-    protected Game game;
+    /**
+     * The score of the game just played, or 0 if the scores are only being viewed
+     */
+    private final int score;
 
     ScoresList scoreBox = new ScoresList();
 
-    private final ObservableList<Pair<String,Integer>> scoreList = FXCollections.observableArrayList();
-    private final ListProperty<Pair<String,Integer>> scoreProperty = new SimpleListProperty<>(scoreList);
+    /**
+     * The local and online scores ranked together, or null when playing offline
+     */
+    private MergedScores mergedScores;
 
     public ScoresScene(GameWindow gameWindow) {
+        this(gameWindow, 0);
+    }
+
+    /**
+     * Create a scores scene offering to save the score of the game just played
+     *
+     * @param gameWindow the Game Window
+     * @param score the final score
+     */
+    public ScoresScene(GameWindow gameWindow, int score) {
         super(gameWindow);
+        this.score = score;
         logger.info("Creating scores Scene");
-
     }
 
-    public void loadScores() throws IOException {
-        String fileName = Multimedia.getScore("scores.txt");
-        FileReader fileReader = new FileReader(fileName.substring(5));
-
-        scoreProperty.clear();
-
-        try (BufferedReader bufferedReader = new BufferedReader(fileReader)) {
-            String line;
-            while((line=bufferedReader.readLine()) != null) {
-                String nameScore[] = line.split(":"); 
-                String name = nameScore[0]; 
-                String score = nameScore[1];
-                Pair<String, Integer> testPair = new Pair<>(name, Integer.parseInt(score));
-                scoreProperty.add(testPair);
-            }
+    /**
+     * Show every score from the score repository, ranked together with the
+     * online scores when playing online, read a page at a time as the list is
+     * scrolled. The online scores fill in when they arrive.
+     */
+    public void loadScores() {
+        RemoteScores onlineScores = gameWindow.getOnlineScores();
+        if (onlineScores == null) {
+            scoreBox.setSource(ScoreRepository.getDefault());
+            return;
         }
 
-        sortScores(scoreProperty);
+        mergedScores = new MergedScores(ScoreRepository.getDefault(), onlineScores);
+        onlineScores.setOnUpdate(from -> Platform.runLater(() -> {
+            mergedScores.invalidate(1, from);
+            scoreBox.refresh();
+        }));
+        scoreBox.setSource(mergedScores);
     }
 
     public String enterName() {
@@ -79,38 +89,36 @@ public class ScoresScene extends BaseScene {
         return input.getText();
     }
 
-    public void writeScores() throws IOException {
-        String getFolder = Multimedia.getScoreFolder();
-
-        File newFile = new File((getFolder+"scores.txt").substring(5));
-
-        if(!newFile.exists()) {
-            //if file doesn exist, create one and write some default scores
-            newFile.createNewFile();
-
-            try {
-                FileWriter fr = new FileWriter(newFile);
-                fr.write("Jhon:30\nSarah:20\nTim:40");
-                fr.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+    /**
+     * Ask for a name and submit the score if it makes the high scores, then
+     * scroll the list to it once it has been saved. The name is asked for once
+     * the scene is showing, and the score repository writes it to the scores
+     * file in the background.
+     */
+    public void writeScores() {
+        if (score <= 0) {
+            return;
         }
-        else {
-            logger.info("Score file already exists.");
-
-            //go through list, if high score beats any of the top scores, write score to file
-            game = new Game(5, 5);
-            loadScores();
-            for(Pair<String, Integer> currentEntry : scoreProperty) {
-                if(game.getScore() > currentEntry.getValue() || game.getHighScore() == 0) {
-                    FileWriter fr = new FileWriter(newFile, true);
-                    fr.write("\n"+enterName()+":"+game.getScore());
-                    fr.close();
-                    break;
-                }
+        ScoreRepository repository = ScoreRepository.getDefault();
+
+        repository.isHighScore(score).thenAcceptAsync(highScore -> {
+            if (highScore) {
+                repository.submit(enterName(), score)
+                    .thenAcceptAsync(rank -> {
+                        long position = rank - 1;
+                        if (mergedScores != null) {
+                            mergedScores.invalidate(0, position);
+                            position += gameWindow.getOnlineScores().countAbove(score);
+                        }
+                        scoreBox.refresh();
+                        scoreBox.scrollTo(position);
+                    }, Platform::runLater)
+                    .exceptionally(e -> {
+                        logger.error("Could not save score", e);
+                        return null;
+                    });
             }
-        }
+        }, Platform::runLater);
     }
 
     public void sortScores(ListProperty<Pair<String,Integer>> scoreList) {
@@ -134,12 +142,8 @@ public class ScoresScene extends BaseScene {
     public void build() {
         logger.info("Building " + this.getClass().getName());
 
-        try {
-            writeScores();
-            loadScores();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        loadScores();
+        writeScores();
 
         root = new GamePane(gameWindow.getWidth(),gameWindow.getHeight());
 
@@ -171,7 +175,6 @@ public class ScoresScene extends BaseScene {
 
         var scoreLabel = new Text("High Scores");
         scoreLabel.getStyleClass().add("heading");
-        scoreBox.scoreProperty().bind(scoreProperty);
         scores.getChildren().addAll(scoreLabel, scoreBox);
 
         mainPane.setCenter(scores);
@@ -185,8 +188,15 @@ public class ScoresScene extends BaseScene {
 
         getScene().setOnKeyPressed(e -> {
             if (e.getCode() == KeyCode.ESCAPE) {
+                if (gameWindow.getOnlineScores() != null) {
+                    gameWindow.getOnlineScores().setOnUpdate(null);
+                }
                 Multimedia.stopBackgroundMusic();
                 gameWindow.startMenu();
+            } else if (e.getCode() == KeyCode.UP) {
+                scoreBox.scrollBy(-1);
+            } else if (e.getCode() == KeyCode.DOWN) {
+                scoreBox.scrollBy(1);
             }
         });
     }
@@ -0,0 +1,400 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javafx.util.Pair;
+
+/**
+ * The LeaderboardFile ranks every score in a ScoreLog, in a memory-mapped file, so any part of the leaderboard can be
+ * read without reading the rest of it.
+ *
+ * The header holds the best scores in full, names included, sorted best first, so the top of the leaderboard is read
+ * from the header alone. After the header every score in the log is kept sorted as its score and log index, so the rank
+ * of a score is a binary search and a page of the leaderboard is read straight from its position, with names read from
+ * the log only for the scores on the page. Equal scores rank in the order they were made.
+ *
+ * Adding a score moves the lower ranked entries along by one, which is a single memory move of the mapped file. The
+ * header is marked dirty, and synced, before the first change after a sync, and marked clean again once the changes
+ * have been synced, so a leaderboard left part way through a change is known to need rebuilding.
+ *
+ * The header is the magic "TLBD", a version, the number of top scores and the number held as ints, then the number of
+ * ranked scores and the number of log records covered as longs, then the dirty flag as an int. Each top score has the
+ * same layout as a ScoreLog record. Each ranked score is the score as an int and its log index as a long.
+ */
+public class LeaderboardFile implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(LeaderboardFile.class);
+
+    private static final int MAGIC = 0x544C4244;
+
+    private static final int VERSION = 2;
+
+    private static final int DIRTY = 32;
+
+    private static final int FIXED_HEADER = 36;
+
+    private static final int ENTRY = 12;
+
+    /**
+     * The smallest number of ranked scores room is made for
+     */
+    private static final int MIN_CAPACITY = 1024;
+
+    private final FileChannel channel;
+
+    private final int topSize;
+
+    /**
+     * The size of the header including the top scores
+     */
+    private final int header;
+
+    private MappedByteBuffer map;
+
+    /**
+     * The number of ranked scores there is room for in the mapping
+     */
+    private long capacity;
+
+    private long count;
+
+    private long covered;
+
+    private int topCount;
+
+    /**
+     * Whether the file has been changed since it was last synced
+     */
+    private boolean dirty;
+
+    /**
+     * Open a leaderboard, starting empty if it does not exist or cannot be used
+     * @param path the leaderboard file
+     * @param topSize the number of top scores held in the header
+     * @throws IOException if the file cannot be opened
+     */
+    public LeaderboardFile(Path path, int topSize) throws IOException {
+        this.topSize = topSize;
+        this.header = FIXED_HEADER + topSize * ScoreLog.RECORD;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+
+        long size = channel.size();
+        map(Math.max(MIN_CAPACITY, (size - header) / ENTRY));
+
+        if (size < header || map.getInt(0) != MAGIC || map.getInt(4) != VERSION || map.getInt(8) != topSize
+            || map.getLong(16) > (size - header) / ENTRY) {
+            if (size > 0) {
+                logger.warn("Leaderboard {} cannot be used, rebuilding it", path);
+            }
+            clear();
+        } else {
+            topCount = map.getInt(12);
+            count = map.getLong(16);
+            covered = map.getLong(24);
+            dirty = map.getInt(DIRTY) != 0;
+        }
+    }
+
+    /**
+     * Map the file with room for the given number of ranked scores
+     */
+    private void map(long entries) throws IOException {
+        long size = header + entries * ENTRY;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Leaderboard is full");
+        }
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        capacity = entries;
+    }
+
+    /**
+     * Forget every score, so the leaderboard can be built again from the start of the log
+     */
+    public synchronized void clear() {
+        map.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, topSize).putInt(DIRTY, 0);
+        topCount = 0;
+        count = 0;
+        covered = 0;
+        dirty = false;
+        writeCounts();
+    }
+
+    private void writeCounts() {
+        map.putInt(12, topCount).putLong(16, count).putLong(24, covered);
+    }
+
+    /**
+     * Add the next record of the log
+     * @param name the player's name
+     * @param score the score
+     * @param time when the score was made
+     * @param index the index of the record in the log
+     * @return the rank the score took, counting from 0
+     * @throws IOException if there is no room for the score
+     */
+    public synchronized long add(String name, int score, long time, long index) throws IOException {
+        if (count == capacity) {
+            map(capacity * 2);
+        }
+        markDirty();
+
+        // Everything ranked at or above the score stays put, everything below moves along one
+        long rank = rankOf(score);
+        move(header + rank * ENTRY, header + (rank + 1) * ENTRY, (count - rank) * ENTRY);
+        map.putInt((int) (header + rank * ENTRY), score);
+        map.putLong((int) (header + rank * ENTRY + 4), index);
+        count++;
+
+        if (rank < topSize) {
+            int moved = Math.min(topCount, topSize - 1) - (int) rank;
+            move(top((int) rank), top((int) rank + 1), (long) moved * ScoreLog.RECORD);
+            putTop((int) rank, name, score, time);
+            topCount = Math.min(topCount + 1, topSize);
+        }
+
+        covered = Math.max(covered, index + 1);
+        writeCounts();
+        return rank;
+    }
+
+    /**
+     * Build a leaderboard of every record of a log from scratch, sorting them all in one go. Used when there are too
+     * many records missing to add them one at a time. It is built in a temporary file which then replaces the old one
+     * in a single rename, so a crash part way through leaves the old leaderboard as it was.
+     * @param path the leaderboard file, which must not be open
+     * @param topSize the number of top scores held in the header
+     * @param log the log
+     * @return the new leaderboard, open
+     * @throws IOException if the log cannot be read or the leaderboard cannot be written
+     */
+    public static LeaderboardFile build(Path path, int topSize, ScoreLog log) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        try (LeaderboardFile leaderboard = new LeaderboardFile(temp, topSize)) {
+            leaderboard.fill(log);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return new LeaderboardFile(path, topSize);
+    }
+
+    /**
+     * Rank every record of a log, replacing anything already ranked
+     */
+    private synchronized void fill(ScoreLog log) throws IOException {
+        long records = log.size();
+        if (records > Integer.MAX_VALUE) {
+            throw new IOException("Too many scores to rank: " + records);
+        }
+
+        // Best first: the lowest key is the highest score, then the earliest record
+        long[] keys = new long[(int) records];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) (Integer.MAX_VALUE - log.readScore(i)) << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        if (records > capacity) {
+            map(Math.max(records, capacity * 2));
+        }
+        for (int i = 0; i < keys.length; i++) {
+            map.putInt(header + i * ENTRY, Integer.MAX_VALUE - (int) (keys[i] >>> 32));
+            map.putLong(header + i * ENTRY + 4, keys[i] & 0xFFFFFFFFL);
+        }
+
+        topCount = (int) Math.min(topSize, records);
+        for (int i = 0; i < topCount; i++) {
+            long record = keys[i] & 0xFFFFFFFFL;
+            Pair<String, Integer> score = log.read(record);
+            putTop(i, score.getKey(), score.getValue(), log.readTime(record));
+        }
+
+        count = records;
+        covered = records;
+        writeCounts();
+    }
+
+    /**
+     * Get the rank a new score would take, counting from 0, which is the number of scores at least as good
+     * @param score the score
+     * @return the rank
+     */
+    public synchronized long rankOf(int score) {
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (getScore(mid) >= score) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the score at a rank
+     * @param rank the rank, counting from 0
+     * @return the score
+     */
+    public synchronized int getScore(long rank) {
+        checkRank(rank);
+        return map.getInt((int) (header + rank * ENTRY));
+    }
+
+    /**
+     * Get the log index of the score at a rank
+     * @param rank the rank, counting from 0
+     * @return the index of the record in the log
+     */
+    public synchronized long getRecord(long rank) {
+        checkRank(rank);
+        return map.getLong((int) (header + rank * ENTRY + 4));
+    }
+
+    /**
+     * Get the best scores from the header
+     * @return the scores, best first
+     */
+    public synchronized List<Pair<String, Integer>> getTop() {
+        List<Pair<String, Integer>> scores = new ArrayList<>(topCount);
+        for (int i = 0; i < topCount; i++) {
+            scores.add(readTop(i));
+        }
+        return scores;
+    }
+
+    /**
+     * Get a page of the leaderboard, reading names from the header where it has them and from the log otherwise
+     * @param page the page number, counting from 0
+     * @param pageSize the number of scores on a page
+     * @param log the log the leaderboard ranks
+     * @return the scores on the page, best first, or an empty list past the end
+     * @throws IOException if the log cannot be read
+     */
+    public synchronized List<Pair<String, Integer>> getPage(long page, int pageSize, ScoreLog log) throws IOException {
+        long first = page * pageSize;
+        long last = Math.min(count, first + pageSize);
+        List<Pair<String, Integer>> scores = new ArrayList<>();
+        for (long rank = first; rank < last; rank++) {
+            scores.add(rank < topCount ? readTop((int) rank) : log.read(getRecord(rank)));
+        }
+        return scores;
+    }
+
+    /**
+     * Get the number of scores ranked
+     * @return number of scores
+     */
+    public synchronized long size() {
+        return count;
+    }
+
+    /**
+     * Get the number of log records added
+     * @return records covered
+     */
+    public synchronized long getCovered() {
+        return covered;
+    }
+
+    /**
+     * Check whether the file was left part way through a change, in which case it must be rebuilt
+     * @return true if it was changed and not synced
+     */
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Make sure every change has reached the disk, then mark the file clean
+     */
+    public synchronized void force() {
+        map.force();
+        if (dirty) {
+            dirty = false;
+            map.putInt(DIRTY, 0);
+            map.force(0, FIXED_HEADER);
+        }
+    }
+
+    /**
+     * Close the file, leaving it dirty if it has been changed since it was last synced
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+
+    /**
+     * Mark the file dirty on the disk before the first change since it was last synced
+     */
+    private void markDirty() {
+        if (!dirty) {
+            dirty = true;
+            map.putInt(DIRTY, 1);
+            map.force(0, FIXED_HEADER);
+        }
+    }
+
+    private void checkRank(long rank) {
+        if (rank < 0 || rank >= count) {
+            throw new IndexOutOfBoundsException("No rank " + rank + " of " + count);
+        }
+    }
+
+    private int top(int slot) {
+        return FIXED_HEADER + slot * ScoreLog.RECORD;
+    }
+
+    private void putTop(int slot, String name, int score, long time) {
+        byte[] bytes = ScoreLog.encodeName(name);
+        int position = top(slot);
+        map.putInt(position, score).putLong(position + 4, time).put(position + 12, (byte) bytes.length);
+        for (int i = 0; i < ScoreLog.MAX_NAME; i++) {
+            map.put(position + 13 + i, i < bytes.length ? bytes[i] : 0);
+        }
+    }
+
+    private Pair<String, Integer> readTop(int slot) {
+        int position = top(slot);
+        int length = Math.min(map.get(position + 12) & 0xFF, ScoreLog.MAX_NAME);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = map.get(position + 13 + i);
+        }
+        return new Pair<>(new String(bytes, StandardCharsets.UTF_8), map.getInt(position));
+    }
+
+    /**
+     * Move bytes within the mapping from one position to a later one, copying from the end so nothing is overwritten
+     * before it is moved
+     */
+    private void move(long from, long to, long length) {
+        byte[] chunk = new byte[(int) Math.min(length, 1 << 16)];
+        long done = 0;
+        while (done < length) {
+            int size = (int) Math.min(chunk.length, length - done);
+            done += size;
+            map.get((int) (from + length - done), chunk, 0, size);
+            map.put((int) (to + length - done), chunk, 0, size);
+        }
+    }
+}
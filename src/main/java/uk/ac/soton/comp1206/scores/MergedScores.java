@@ -0,0 +1,156 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.util.Pair;
+
+/**
+ * MergedScores ranks the scores of several sources together, each already sorted highest first, without copying any
+ * of them. A page is made by a k-way merge: each source is read a page at a time, and the highest score at the front
+ * of any source is taken next. Equal scores rank in the order the sources were given.
+ *
+ * Every so often the merge remembers how far into each source it has got, so a later page carries on from the nearest
+ * point before it instead of merging from the top again. When a source changes only the points that had read past the
+ * change are forgotten.
+ *
+ * The merging runs on its own thread, so it can wait for the sources without holding up the sources or the caller.
+ */
+public class MergedScores implements ScoreSource {
+
+    /**
+     * The number of scores read from a source at once
+     */
+    private static final int READ_SIZE = 50;
+
+    /**
+     * How often the merge remembers its place, in scores
+     */
+    private static final int CHECKPOINT = 50;
+
+    private static final ExecutorService merger = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "Score Merge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<ScoreSource> sources;
+
+    /**
+     * The position in each source at a position in the merged scores. Only used on the merge thread.
+     */
+    private final TreeMap<Long, long[]> checkpoints = new TreeMap<>();
+
+    /**
+     * Merge some sources
+     * @param sources the sources, each sorted highest first
+     */
+    public MergedScores(ScoreSource... sources) {
+        this.sources = List.of(sources);
+    }
+
+    @Override
+    public CompletableFuture<Long> getCount() {
+        CompletableFuture<Long> count = CompletableFuture.completedFuture(0L);
+        for (ScoreSource source : sources) {
+            count = count.thenCombine(source.getCount(), Long::sum);
+        }
+        return count;
+    }
+
+    @Override
+    public CompletableFuture<List<Pair<String, Integer>>> getPage(long page, int pageSize) {
+        return CompletableFuture.supplyAsync(() -> read(page * pageSize, pageSize), merger);
+    }
+
+    /**
+     * Forget where the merge had got to in a source at or past a change to it. A point that had read exactly up to the
+     * change is forgotten too, since the next score it would read from that source is the one which changed.
+     * @param source the position of the source in the list given
+     * @param from the first position in that source which changed
+     */
+    public void invalidate(int source, long from) {
+        merger.execute(() -> checkpoints.values().removeIf(positions -> positions[source] >= from));
+    }
+
+    /**
+     * Merge the sources from the nearest remembered place up to the end of the scores wanted
+     */
+    private List<Pair<String, Integer>> read(long start, int size) {
+        Map.Entry<Long, long[]> checkpoint = checkpoints.floorEntry(start);
+        long index = checkpoint == null ? 0 : checkpoint.getKey();
+        Cursor[] cursors = new Cursor[sources.size()];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = new Cursor(sources.get(i), checkpoint == null ? 0 : checkpoint.getValue()[i]);
+        }
+
+        List<Pair<String, Integer>> scores = new ArrayList<>(size);
+        while (index < start + size) {
+            int best = -1;
+            Pair<String, Integer> bestScore = null;
+            for (int i = 0; i < cursors.length; i++) {
+                Pair<String, Integer> score = cursors[i].peek();
+                if (score != null && (bestScore == null || score.getValue() > bestScore.getValue())) {
+                    best = i;
+                    bestScore = score;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+
+            if (index >= start) {
+                scores.add(bestScore);
+            }
+            cursors[best].position++;
+            index++;
+
+            if (index % CHECKPOINT == 0) {
+                long[] positions = new long[cursors.length];
+                for (int i = 0; i < cursors.length; i++) {
+                    positions[i] = cursors[i].position;
+                }
+                checkpoints.put(index, positions);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * A place in one source, reading the page it is on when needed
+     */
+    private static class Cursor {
+        final ScoreSource source;
+        long position;
+
+        /**
+         * The page read, or null if none has been
+         */
+        List<Pair<String, Integer>> page;
+        long pageNumber;
+
+        Cursor(ScoreSource source, long position) {
+            this.source = source;
+            this.position = position;
+        }
+
+        /**
+         * Get the score at the cursor, waiting for its page to be read
+         * @return the score, or null at the end of the source
+         */
+        Pair<String, Integer> peek() {
+            long number = position / READ_SIZE;
+            if (page == null || pageNumber != number) {
+                page = source.getPage(number, READ_SIZE).join();
+                pageNumber = number;
+            }
+            int offset = (int) (position - number * READ_SIZE);
+            return offset < page.size() ? page.get(offset) : null;
+        }
+    }
+}
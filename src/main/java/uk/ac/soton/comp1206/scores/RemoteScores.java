@@ -0,0 +1,170 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javafx.util.Pair;
+import uk.ac.soton.comp1206.event.CommunicationsListener;
+import uk.ac.soton.comp1206.event.scoresUpdateListener;
+import uk.ac.soton.comp1206.network.Communicator;
+
+/**
+ * RemoteScores is a ScoreSource for the online scores from the TetrECS server, which answers a HISCORES message with
+ * the online scores as "name:score" lines.
+ *
+ * It never waits for the server. Reads are answered from the scores last received, and if those are older than the
+ * time to live a new HISCORES request is sent, at most one at a time. When the answer arrives the listener is told the
+ * first position that changed, so anything built on the scores above it can be kept. If the server stops answering the
+ * scores are dropped once they are three times the time to live old, so old online scores are not shown forever.
+ */
+public class RemoteScores implements ScoreSource, CommunicationsListener {
+
+    private static final Logger logger = LogManager.getLogger(RemoteScores.class);
+
+    /**
+     * How long online scores are used before they are asked for again, in milliseconds
+     */
+    public static final long DEFAULT_TTL = 60_000;
+
+    private static final String HISCORES = "HISCORES";
+
+    private final Communicator communicator;
+
+    /**
+     * The time to live in nanoseconds
+     */
+    private final long ttl;
+
+    /**
+     * The scores last received, highest first
+     */
+    private List<Pair<String, Integer>> scores = Collections.emptyList();
+
+    /**
+     * When the scores were last received, in nanoseconds, or null if they never have been
+     */
+    private Long received;
+
+    /**
+     * When the request waiting for an answer was sent, in nanoseconds, or null if there is none
+     */
+    private Long requested;
+
+    private scoresUpdateListener listener;
+
+    /**
+     * Create a source of online scores
+     * @param communicator the connection to the server
+     * @param ttl how long scores are used before they are asked for again, in milliseconds
+     */
+    public RemoteScores(Communicator communicator, long ttl) {
+        this.communicator = communicator;
+        this.ttl = ttl * 1_000_000L;
+        communicator.addListener(this);
+    }
+
+    /**
+     * Set the listener told when the online scores change. It may be called on any thread.
+     * @param listener the listener, or null for none
+     */
+    public synchronized void setOnUpdate(scoresUpdateListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public CompletableFuture<Long> getCount() {
+        return CompletableFuture.completedFuture((long) current().size());
+    }
+
+    @Override
+    public CompletableFuture<List<Pair<String, Integer>>> getPage(long page, int pageSize) {
+        List<Pair<String, Integer>> scores = current();
+        int first = (int) Math.min(scores.size(), page * pageSize);
+        int last = Math.min(scores.size(), first + pageSize);
+        return CompletableFuture.completedFuture(scores.subList(first, last));
+    }
+
+    /**
+     * Count the online scores above a score
+     * @param score the score
+     * @return the number of online scores strictly higher
+     */
+    public int countAbove(int score) {
+        int count = 0;
+        for (Pair<String, Integer> online : current()) {
+            if (online.getValue() > score) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the scores last received, dropping them if they are too old and asking for new ones if they are stale
+     */
+    private List<Pair<String, Integer>> current() {
+        scoresUpdateListener dropped = null;
+        List<Pair<String, Integer>> current;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (received != null && now - received > 3 * ttl && !scores.isEmpty()) {
+                logger.info("Online scores have not been updated for too long, dropping them");
+                scores = Collections.emptyList();
+                dropped = listener;
+            }
+            if ((received == null || now - received > ttl) && (requested == null || now - requested > ttl)) {
+                requested = now;
+                communicator.send(HISCORES);
+            }
+            current = scores;
+        }
+        if (dropped != null) {
+            dropped.scoresUpdated(0);
+        }
+        return current;
+    }
+
+    @Override
+    public void receiveCommunication(String communication) {
+        if (!communication.startsWith(HISCORES)) {
+            return;
+        }
+
+        List<Pair<String, Integer>> update = new ArrayList<>();
+        ScoreParser parser = new ScoreParser((name, score) -> update.add(new Pair<>(name, score)));
+        try {
+            byte[] bytes = communication.substring(HISCORES.length()).strip().getBytes(StandardCharsets.UTF_8);
+            parser.parse(ByteBuffer.wrap(bytes));
+        } catch (IOException e) {
+            logger.error("Could not read online scores", e);
+            return;
+        }
+        update.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+
+        scoresUpdateListener changed = null;
+        int from = 0;
+        synchronized (this) {
+            received = System.nanoTime();
+            requested = null;
+            while (from < scores.size() && from < update.size() && scores.get(from).equals(update.get(from))) {
+                from++;
+            }
+            if (from < scores.size() || from < update.size()) {
+                scores = Collections.unmodifiableList(update);
+                changed = listener;
+            }
+        }
+        logger.info("Received {} online scores", update.size());
+        if (changed != null) {
+            changed.scoresUpdated(from);
+        }
+    }
+}
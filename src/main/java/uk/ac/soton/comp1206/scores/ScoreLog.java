@@ -0,0 +1,210 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javafx.util.Pair;
+
+/**
+ * The ScoreLog is an append-only file of every score ever submitted, in fixed-size records, so any score can be read
+ * directly by its index without reading the rest of the file.
+ *
+ * The file starts with the magic "TSCL" and a version as ints. Each record is the score as an int, the time it was
+ * submitted in milliseconds as a long, then the length of the name as a byte and the name in UTF-8, padded with zeros.
+ * Names are cut short to fit. A record left half written by a crash is dropped when the log is opened.
+ */
+public class ScoreLog implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(ScoreLog.class);
+
+    private static final int MAGIC = 0x5453434C;
+
+    private static final int VERSION = 1;
+
+    /**
+     * The size of the header in bytes
+     */
+    public static final int HEADER = 8;
+
+    /**
+     * The size of a record in bytes
+     */
+    public static final int RECORD = 40;
+
+    /**
+     * The longest name stored, in bytes of UTF-8
+     */
+    public static final int MAX_NAME = RECORD - 13;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD);
+
+    /**
+     * The number of records in the log
+     */
+    private long count;
+
+    /**
+     * Open a log, creating it if it does not exist
+     * @param path the log file
+     * @throws IOException if the file cannot be opened or is not a score log
+     */
+    public ScoreLog(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).flip();
+                channel.write(header, 0);
+                size = HEADER;
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                channel.read(header, 0);
+                header.flip();
+                if (header.remaining() < HEADER || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                    throw new IOException("Not a score log: " + path);
+                }
+            }
+
+            count = (size - HEADER) / RECORD;
+            long end = HEADER + count * RECORD;
+            if (end != size) {
+                logger.warn("Dropping {} bytes of an unfinished score from {}", size - end, path);
+                channel.truncate(end);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Add a score to the end of the log
+     * @param name the player's name
+     * @param score the score
+     * @param time when the score was made, in milliseconds
+     * @return the index of the new record
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized long append(String name, int score, long time) throws IOException {
+        byte[] bytes = encodeName(name);
+        buffer.clear();
+        buffer.putInt(score).putLong(time).put((byte) bytes.length).put(bytes);
+        while (buffer.hasRemaining()) {
+            buffer.put((byte) 0);
+        }
+        buffer.flip();
+
+        long index = count;
+        long position = HEADER + index * RECORD;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        count++;
+        return index;
+    }
+
+    /**
+     * Read a record
+     * @param index the index of the record
+     * @return the name and score
+     * @throws IOException if the record cannot be read
+     */
+    public synchronized Pair<String, Integer> read(long index) throws IOException {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("No score " + index + " in a log of " + count);
+        }
+        buffer.clear();
+        long position = HEADER + index * RECORD;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Score log ended early");
+            }
+        }
+        buffer.flip();
+
+        int score = buffer.getInt();
+        buffer.getLong();
+        int length = Math.min(buffer.get() & 0xFF, MAX_NAME);
+        String name = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        return new Pair<>(name, score);
+    }
+
+    /**
+     * Read only the score of a record
+     * @param index the index of the record
+     * @return the score
+     * @throws IOException if the record cannot be read
+     */
+    public synchronized int readScore(long index) throws IOException {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("No score " + index + " in a log of " + count);
+        }
+        ByteBuffer score = ByteBuffer.allocate(Integer.BYTES);
+        channel.read(score, HEADER + index * RECORD);
+        return score.getInt(0);
+    }
+
+    /**
+     * Read only the time of a record
+     * @param index the index of the record
+     * @return when the score was made, in milliseconds
+     * @throws IOException if the record cannot be read
+     */
+    public synchronized long readTime(long index) throws IOException {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("No score " + index + " in a log of " + count);
+        }
+        ByteBuffer time = ByteBuffer.allocate(Long.BYTES);
+        channel.read(time, HEADER + index * RECORD + Integer.BYTES);
+        return time.getLong(0);
+    }
+
+    /**
+     * Get the number of records in the log
+     * @return number of scores
+     */
+    public synchronized long size() {
+        return count;
+    }
+
+    /**
+     * Make sure everything appended has reached the disk
+     * @throws IOException if the file cannot be synced
+     */
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Encode a name in UTF-8, cut short at a character boundary if it is too long
+     */
+    static byte[] encodeName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_NAME) {
+            return bytes;
+        }
+        int length = MAX_NAME;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        byte[] cut = new byte[length];
+        System.arraycopy(bytes, 0, cut, 0, length);
+        return cut;
+    }
+}
@@ -0,0 +1,219 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The ScoreParser reads scores in the old text format, one "name:score" a line, and hands each one to a Handler as it
+ * goes, so a file of any size is read in a single pass through one fixed buffer.
+ *
+ * It works on the bytes directly: the colon and the end of the line are found by scanning, the score is worked out
+ * digit by digit, and the only thing made for each record is the name. The last colon on a line separates the name
+ * from the score, so a name may contain colons. Blank lines are ignored. A line with no colon, a score which is not a
+ * whole number, or a line longer than the buffer is skipped and counted as corrupt instead of stopping the parse.
+ */
+public class ScoreParser {
+
+    private static final Logger logger = LogManager.getLogger(ScoreParser.class);
+
+    /**
+     * Receives each score read
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void score(String name, int score) throws IOException;
+    }
+
+    /**
+     * The size of the buffer, which is also the longest line that can be read
+     */
+    private static final int BUFFER = 64 * 1024;
+
+    /**
+     * The most corrupt records logged one by one
+     */
+    private static final int LOGGED = 10;
+
+    private final Handler handler;
+
+    private long line = 0;
+
+    private long records = 0;
+
+    private long corrupt = 0;
+
+    /**
+     * Create a parser
+     * @param handler receives each score read
+     */
+    public ScoreParser(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Read every score from a channel
+     * @param channel the channel, read to the end but not closed
+     * @throws IOException if the channel cannot be read or the handler fails
+     */
+    public void parse(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER);
+        boolean skipping = false;
+
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            if (skipping) {
+                skipping = !skipLine(buffer);
+            }
+            if (!skipping) {
+                parseLines(buffer);
+                if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                    // The buffer is full of one line
+                    line++;
+                    corrupt("line too long");
+                    buffer.position(buffer.limit());
+                    skipping = true;
+                }
+            } else {
+                buffer.position(buffer.limit());
+            }
+            buffer.compact();
+        }
+
+        buffer.flip();
+        if (!skipping && buffer.hasRemaining()) {
+            record(buffer, buffer.position(), buffer.limit());
+        }
+        finish();
+    }
+
+    /**
+     * Read every score from a buffer holding the whole text
+     * @param buffer the buffer, read from its position to its limit
+     * @throws IOException if the handler fails
+     */
+    public void parse(ByteBuffer buffer) throws IOException {
+        parseLines(buffer);
+        if (buffer.hasRemaining()) {
+            record(buffer, buffer.position(), buffer.limit());
+            buffer.position(buffer.limit());
+        }
+        finish();
+    }
+
+    /**
+     * Parse every complete line in the buffer, leaving its position at the start of the first incomplete line
+     */
+    private void parseLines(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        for (int i = start; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                record(buffer, start, i);
+                start = i + 1;
+            }
+        }
+        buffer.position(start);
+    }
+
+    /**
+     * Move past the end of the current line
+     * @return true if the end of the line was found
+     */
+    private boolean skipLine(ByteBuffer buffer) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                buffer.position(i + 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse one line, from start up to but not including end
+     */
+    private void record(ByteBuffer buffer, int start, int end) throws IOException {
+        line++;
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end == start) {
+            return;
+        }
+
+        int colon = end - 1;
+        while (colon >= start && buffer.get(colon) != ':') {
+            colon--;
+        }
+        if (colon < start) {
+            corrupt("no score");
+            return;
+        }
+        if (colon == end - 1) {
+            corrupt("empty score");
+            return;
+        }
+
+        long score = 0;
+        for (int i = colon + 1; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                corrupt("score is not a whole number");
+                return;
+            }
+            score = score * 10 + digit;
+            if (score > Integer.MAX_VALUE) {
+                corrupt("score too large");
+                return;
+            }
+        }
+
+        String name;
+        if (buffer.hasArray()) {
+            name = new String(buffer.array(), buffer.arrayOffset() + start, colon - start, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[colon - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(start + i);
+            }
+            name = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        records++;
+        handler.score(name, (int) score);
+    }
+
+    private void corrupt(String reason) {
+        corrupt++;
+        if (corrupt <= LOGGED) {
+            logger.warn("Skipping bad score on line {}: {}", line, reason);
+        }
+    }
+
+    private void finish() {
+        if (corrupt > LOGGED) {
+            logger.warn("Skipped {} bad scores in total", corrupt);
+        }
+    }
+
+    /**
+     * Get the number of scores read
+     * @return number of scores
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Get the number of lines skipped because they could not be read
+     * @return number of corrupt records
+     */
+    public long getCorrupt() {
+        return corrupt;
+    }
+}
@@ -0,0 +1,476 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javafx.util.Pair;
+import uk.ac.soton.comp1206.event.Multimedia;
+
+/**
+ * The ScoreRepository holds the high scores in memory and does all its file work on its own I/O thread, so asking for
+ * scores never blocks the caller. Every query returns a CompletableFuture which completes once the answer is ready.
+ * The work runs in the order it was asked for, so a query made after a submit sees the submitted score.
+ *
+ * Every score is kept in an append-only ScoreLog, and a LeaderboardFile ranks them all. When the repository is first
+ * used it reads only the best scores from the header of the leaderboard, so loading takes the same time however many
+ * scores have been made. The rest of the leaderboard is read a page at a time when asked for.
+ *
+ * Submitting a score inserts it in place in memory, and it is added to the log and the leaderboard shortly afterwards,
+ * along with anything else submitted in the meantime. The whole group is synced to the disk at once, and the future
+ * returned by submit completes when it has been.
+ *
+ * The scores are kept in the user's data folder. The first time a folder is used, the scores from an old scores.txt
+ * are copied into the log.
+ */
+public class ScoreRepository implements ScoreSource {
+
+    private static final Logger logger = LogManager.getLogger(ScoreRepository.class);
+
+    /**
+     * The number of scores kept in memory by default
+     */
+    public static final int TOP_SCORES = 10;
+
+    /**
+     * How long after a score is submitted it is written, in milliseconds
+     */
+    private static final long WRITE_DELAY = 500;
+
+    /**
+     * How long to wait for the last scores to be written when the program exits, in milliseconds
+     */
+    private static final long EXIT_TIMEOUT = 5000;
+
+    /**
+     * The most log records added to the leaderboard one at a time when it has fallen behind, beyond which it is rebuilt
+     */
+    private static final long CATCH_UP_LIMIT = 1024;
+
+    /**
+     * The scores a new log starts with
+     */
+    private static final String DEFAULT_SCORES = "Jhon:30\nSarah:20\nTim:40";
+
+    /**
+     * Runs every read and write, one at a time
+     */
+    private static final ScheduledExecutorService io = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "Score I/O");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static ScoreRepository instance;
+
+    private final File folder;
+
+    /**
+     * The old text scores file copied into a new log
+     */
+    private final File legacy;
+
+    private final int capacity;
+
+    private ScoreLog log;
+
+    private LeaderboardFile leaderboard;
+
+    /**
+     * The best scores, highest first
+     */
+    private final List<Pair<String, Integer>> top = new ArrayList<>();
+
+    private volatile int highScore = 0;
+
+    /**
+     * Completes when the scores have been loaded, or null if loading has not started
+     */
+    private CompletableFuture<Void> loading;
+
+    /**
+     * Scores submitted but not yet written
+     */
+    private List<Pair<String, Integer>> unwritten = new ArrayList<>();
+
+    /**
+     * Completes when the scores not yet written have been synced to the disk, with the rank each of them took
+     */
+    private CompletableFuture<long[]> commit = new CompletableFuture<>();
+
+    /**
+     * The write waiting to run, or null
+     */
+    private ScheduledFuture<?> pendingWrite;
+
+    /**
+     * A piece of file work which may fail
+     */
+    @FunctionalInterface
+    private interface IOTask<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Create a repository keeping its scores in a folder, copying in the scores.txt in the folder if it is new
+     * @param folder the folder holding the score log and leaderboard
+     * @param capacity the number of scores kept in memory
+     */
+    public ScoreRepository(File folder, int capacity) {
+        this(folder, new File(folder, "scores.txt"), capacity);
+    }
+
+    /**
+     * Create a repository keeping its scores in a folder
+     * @param folder the folder holding the score log and leaderboard
+     * @param legacy the old text scores file copied in if the folder is new, or null to start with the default scores
+     * @param capacity the number of scores kept in memory
+     */
+    public ScoreRepository(File folder, File legacy, int capacity) {
+        this.folder = folder;
+        this.legacy = legacy;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Get the repository for the user's data folder. Anything not yet written is written when the program exits.
+     * @return the repository
+     */
+    public static synchronized ScoreRepository getDefault() {
+        if (instance == null) {
+            instance = new ScoreRepository(getDataFolder(), findLegacyScores(), TOP_SCORES);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    instance.flush().get(EXIT_TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                    logger.error("Could not write scores before exiting", e);
+                }
+            }, "Score Flush"));
+        }
+        return instance;
+    }
+
+    /**
+     * Get the folder every file the game writes is kept in: the scores, the saved game and the replays. It comes from
+     * the tetrecs.data system property, or is .tetrecs in the user's home.
+     * @return the folder
+     */
+    public static File getDataFolder() {
+        String path = System.getProperty("tetrecs.data");
+        return path != null ? new File(path) : new File(System.getProperty("user.home"), ".tetrecs");
+    }
+
+    /**
+     * Find the scores.txt the game used to keep its scores in, if it is a file that can be read
+     */
+    private static File findLegacyScores() {
+        URL url = Multimedia.class.getResource("/" + Multimedia.scoresFolder + "scores.txt");
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Start loading the scores on the I/O thread if it has not been done yet
+     * @return completes when the scores have been loaded
+     */
+    public synchronized CompletableFuture<Void> load() {
+        if (loading == null) {
+            loading = CompletableFuture.runAsync(this::read, io);
+        }
+        return loading;
+    }
+
+    /**
+     * Open the score log and read the best scores
+     */
+    private void read() {
+        try {
+            if (!folder.isDirectory() && !folder.mkdirs()) {
+                throw new IOException("Could not create " + folder);
+            }
+            log = new ScoreLog(new File(folder, "scores.log").toPath());
+            File leaderboardFile = new File(folder, "scores.lbd");
+            leaderboard = new LeaderboardFile(leaderboardFile.toPath(), capacity);
+
+            if (log.size() == 0) {
+                importScores(legacy);
+            }
+
+            // Catch the leaderboard up with anything written to the log after it was last saved, or rebuild it if it was
+            // left part way through a change
+            long behind = log.size() - leaderboard.getCovered();
+            if (leaderboard.isDirty()) {
+                logger.warn("Leaderboard was not saved cleanly, rebuilding it");
+                leaderboard.close();
+                leaderboard = LeaderboardFile.build(leaderboardFile.toPath(), capacity, log);
+            } else if (behind < 0 || behind > CATCH_UP_LIMIT) {
+                logger.info("Leaderboard is {} scores out of date, rebuilding it", behind);
+                leaderboard.close();
+                leaderboard = LeaderboardFile.build(leaderboardFile.toPath(), capacity, log);
+            } else {
+                for (long i = leaderboard.getCovered(); i < log.size(); i++) {
+                    Pair<String, Integer> score = log.read(i);
+                    leaderboard.add(score.getKey(), score.getValue(), log.readTime(i), i);
+                }
+                leaderboard.force();
+            }
+
+            top.addAll(leaderboard.getTop());
+            if (!top.isEmpty()) {
+                highScore = top.get(0).getValue();
+            }
+        } catch (IOException e) {
+            logger.error("Could not read scores, new scores will not be saved", e);
+            log = null;
+            leaderboard = null;
+            readLegacyScores();
+        }
+        logger.info("Loaded {} high scores", top.size());
+    }
+
+    /**
+     * Copy the scores from an old text scores file into the log, or the default scores if there is none. Lines which
+     * cannot be read are skipped.
+     */
+    private void importScores(File file) throws IOException {
+        if (file == null || !file.exists()) {
+            long time = System.currentTimeMillis();
+            readScores(null, (name, score) -> log.append(name, score, time));
+            return;
+        }
+
+        long time = file.lastModified();
+        ScoreParser parser = readScores(file, (name, score) -> log.append(name, score, time));
+        log.force();
+        logger.info("Imported {} scores from {}, skipping {}", parser.getRecords(), file, parser.getCorrupt());
+    }
+
+    /**
+     * Read the best scores straight from the old text scores file, for when the score log cannot be used
+     */
+    private void readLegacyScores() {
+        TopScores best = new TopScores(capacity);
+        try {
+            readScores(legacy != null && legacy.exists() ? legacy : null, best);
+        } catch (IOException e) {
+            logger.error("Could not read old scores", e);
+        }
+        top.clear();
+        top.addAll(best.getScores());
+        if (!top.isEmpty()) {
+            highScore = top.get(0).getValue();
+        }
+    }
+
+    /**
+     * Read the scores in an old text scores file, or the default scores
+     * @param file the file, or null for the default scores
+     * @param handler receives each score
+     * @return the parser, which counted the scores read and skipped
+     */
+    private static ScoreParser readScores(File file, ScoreParser.Handler handler) throws IOException {
+        ScoreParser parser = new ScoreParser(handler);
+        if (file == null) {
+            parser.parse(ByteBuffer.wrap(DEFAULT_SCORES.getBytes(StandardCharsets.UTF_8)));
+        } else {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                parser.parse(channel);
+            }
+        }
+        return parser;
+    }
+
+    /**
+     * Run some work on the I/O thread once the scores have been loaded
+     */
+    private <T> CompletableFuture<T> query(IOTask<T> task) {
+        load();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
+    }
+
+    /**
+     * Get the highest score, waiting for the scores to load the first time. Do not call on the JavaFX thread before
+     * the scores have loaded.
+     * @return high score, or 0 if there are none
+     */
+    public int getHighScore() {
+        load().join();
+        return highScore;
+    }
+
+    /**
+     * Get the best scores, highest first
+     * @return completes with a copy of the scores
+     */
+    public CompletableFuture<List<Pair<String, Integer>>> getTopScores() {
+        return query(() -> Collections.unmodifiableList(new ArrayList<>(top)));
+    }
+
+    /**
+     * Check whether a score would be kept among the best scores
+     * @param score the score
+     * @return completes with true if it would be kept
+     */
+    public CompletableFuture<Boolean> isHighScore(int score) {
+        return query(() -> top.size() < capacity || score > top.get(top.size() - 1).getValue());
+    }
+
+    /**
+     * Get the rank a score would take among every score written so far
+     * @param score the score
+     * @return completes with the rank, counting from 1
+     */
+    public CompletableFuture<Long> getRank(int score) {
+        return query(() -> leaderboard == null ? 1 : leaderboard.rankOf(score) + 1);
+    }
+
+    /**
+     * Get a page of every score written so far, reading only the scores on the page
+     * @param page the page number, counting from 0
+     * @param pageSize the number of scores on a page
+     * @return completes with the scores on the page, highest first, or an empty list past the end
+     */
+    @Override
+    public CompletableFuture<List<Pair<String, Integer>>> getPage(long page, int pageSize) {
+        return query(() -> leaderboard == null
+            ? Collections.<Pair<String, Integer>>emptyList() : leaderboard.getPage(page, pageSize, log));
+    }
+
+    /**
+     * Get the number of scores written so far
+     * @return completes with the number of scores
+     */
+    @Override
+    public CompletableFuture<Long> getCount() {
+        return query(() -> leaderboard == null ? 0 : leaderboard.size());
+    }
+
+    /**
+     * Add a score. It is kept in memory straight away and written to the score log shortly afterwards.
+     * @param name the player's name
+     * @param score the score
+     * @return completes when the score has been synced to the disk, with the rank it took among every score written,
+     * counting from 1
+     */
+    public CompletableFuture<Long> submit(String name, int score) {
+        return query(() -> {
+            insert(name, score);
+            int slot = unwritten.size();
+            unwritten.add(new Pair<>(name, score));
+            if (pendingWrite == null) {
+                pendingWrite = io.schedule(this::write, WRITE_DELAY, TimeUnit.MILLISECONDS);
+            }
+            return commit.thenApply(ranks -> ranks[slot] + 1);
+        }).thenCompose(rank -> rank);
+    }
+
+    /**
+     * Write every score submitted so far to the score log now
+     * @return completes when they have been written
+     */
+    public CompletableFuture<Void> flush() {
+        return query(() -> {
+            write();
+            return null;
+        });
+    }
+
+    /**
+     * Write every score submitted so far to the log and the leaderboard, then sync them both once for the whole group
+     */
+    private void write() {
+        if (pendingWrite != null) {
+            pendingWrite.cancel(false);
+            pendingWrite = null;
+        }
+        if (unwritten.isEmpty()) {
+            return;
+        }
+        List<Pair<String, Integer>> scores = unwritten;
+        CompletableFuture<long[]> committed = commit;
+        unwritten = new ArrayList<>();
+        commit = new CompletableFuture<>();
+
+        if (log == null) {
+            committed.completeExceptionally(new IOException("Scores cannot be saved"));
+            return;
+        }
+        try {
+            long time = System.currentTimeMillis();
+            long[] ranks = new long[scores.size()];
+            for (int i = 0; i < ranks.length; i++) {
+                Pair<String, Integer> score = scores.get(i);
+                long record = log.append(score.getKey(), score.getValue(), time);
+                ranks[i] = leaderboard.add(score.getKey(), score.getValue(), time, record);
+                // Anything earlier in the group at or below the new score has moved down one
+                for (int j = 0; j < i; j++) {
+                    if (ranks[j] >= ranks[i]) {
+                        ranks[j]++;
+                    }
+                }
+            }
+            log.force();
+            leaderboard.force();
+            committed.complete(ranks);
+        } catch (IOException e) {
+            logger.error("Could not write scores", e);
+            committed.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Insert a score into the best scores, after any equal scores, dropping the lowest if there are too many
+     */
+    private void insert(String name, int score) {
+        int low = 0;
+        int high = top.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (top.get(mid).getValue() >= score) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low >= capacity) {
+            return;
+        }
+
+        top.add(low, new Pair<>(name, score));
+        if (top.size() > capacity) {
+            top.remove(top.size() - 1);
+        }
+        highScore = top.get(0).getValue();
+    }
+}
@@ -0,0 +1,26 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javafx.util.Pair;
+
+/**
+ * A leaderboard that can be read a page at a time, highest scores first, without waiting for the answer
+ */
+public interface ScoreSource {
+
+    /**
+     * Get the number of scores
+     * @return completes with the number of scores
+     */
+    CompletableFuture<Long> getCount();
+
+    /**
+     * Get a page of scores
+     * @param page the page number, counting from 0
+     * @param pageSize the number of scores on a page
+     * @return completes with the scores on the page, highest first, or an empty list past the end
+     */
+    CompletableFuture<List<Pair<String, Integer>>> getPage(long page, int pageSize);
+}
@@ -0,0 +1,81 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import javafx.util.Pair;
+
+/**
+ * TopScores keeps the best scores from a stream of any length using a fixed amount of memory.
+ *
+ * It is a min-heap of the best scores seen, with the worst of them at the root, so each new score is compared against
+ * the root and, if it is better, replaces it. Equal scores rank in the order they were seen.
+ */
+public class TopScores implements ScoreParser.Handler {
+
+    /**
+     * Orders scores worst first
+     */
+    private static final Comparator<Entry> WORST_FIRST = (a, b) -> a.score != b.score
+        ? Integer.compare(a.score, b.score) : Long.compare(b.order, a.order);
+
+    private final int capacity;
+
+    /**
+     * The scores kept, worst first
+     */
+    private final PriorityQueue<Entry> heap;
+
+    /**
+     * The number of scores seen so far
+     */
+    private long seen = 0;
+
+    /**
+     * Create an accumulator
+     * @param capacity the number of scores kept
+     */
+    public TopScores(int capacity) {
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<>(Math.max(1, capacity), WORST_FIRST);
+    }
+
+    @Override
+    public void score(String name, int score) {
+        long order = seen++;
+        if (heap.size() < capacity) {
+            heap.add(new Entry(name, score, order));
+        } else if (capacity > 0 && score > heap.peek().score) {
+            heap.poll();
+            heap.add(new Entry(name, score, order));
+        }
+    }
+
+    /**
+     * Get the scores kept
+     * @return the scores, best first
+     */
+    public List<Pair<String, Integer>> getScores() {
+        List<Entry> sorted = new ArrayList<>(heap);
+        sorted.sort(WORST_FIRST.reversed());
+        List<Pair<String, Integer>> scores = new ArrayList<>(sorted.size());
+        for (Entry entry : sorted) {
+            scores.add(new Pair<>(entry.name, entry.score));
+        }
+        return scores;
+    }
+
+    private static class Entry {
+        final String name;
+        final int score;
+        final long order;
+
+        Entry(String name, int score, long order) {
+            this.name = name;
+            this.score = score;
+            this.order = order;
+        }
+    }
+}
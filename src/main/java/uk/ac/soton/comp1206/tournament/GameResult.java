@@ -0,0 +1,69 @@
+package uk.ac.soton.comp1206.tournament;
+
+/**
+ * The GameResult is the outcome of a single headless game played in a Tournament.
+ */
+public class GameResult {
+
+    private final long seed;
+    private final int score;
+    private final int level;
+    private final int lines;
+    private final int pieces;
+    private final long duration;
+    private final boolean finished;
+
+    /**
+     * Create a new result
+     * @param seed the seed the game's pieces were drawn from
+     * @param score final score
+     * @param level level reached
+     * @param lines number of lines cleared
+     * @param pieces number of pieces placed
+     * @param duration length of the game in simulated milliseconds
+     * @param finished true if the game ended by losing every life, false if it was stopped at the piece limit
+     */
+    public GameResult(long seed, int score, int level, int lines, int pieces, long duration, boolean finished) {
+        this.seed = seed;
+        this.score = score;
+        this.level = level;
+        this.lines = lines;
+        this.pieces = pieces;
+        this.duration = duration;
+        this.finished = finished;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+
+    public int getPieces() {
+        return pieces;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public String toString() {
+        return "GameResult{seed=" + seed + ", score=" + score + ", level=" + level + ", lines=" + lines
+            + ", pieces=" + pieces + ", duration=" + duration + ", finished=" + finished + "}";
+    }
+}
@@ -0,0 +1,114 @@
+package uk.ac.soton.comp1206.tournament;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * A Histogram counts values into fixed width buckets. Any number of threads can add to it at once without locking,
+ * so results from every game in a Tournament can be recorded as soon as the game finishes.
+ *
+ * Values past the last bucket are counted in a final overflow bucket.
+ */
+public class Histogram {
+
+    private final String name;
+    private final long width;
+    private final AtomicLongArray counts;
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    /**
+     * Create a new empty histogram
+     * @param name the name printed with the histogram
+     * @param width the range of values in each bucket
+     * @param buckets the number of buckets, not counting the overflow bucket
+     */
+    public Histogram(String name, long width, int buckets) {
+        if (width < 1 || buckets < 1) {
+            throw new IllegalArgumentException("Histogram needs a positive width and bucket count");
+        }
+        this.name = name;
+        this.width = width;
+        this.counts = new AtomicLongArray(buckets + 1);
+    }
+
+    /**
+     * Count a value
+     * @param value the value, at least 0
+     */
+    public void add(long value) {
+        int bucket = (int) Math.min(value / width, counts.length() - 1);
+        counts.incrementAndGet(bucket);
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        min.accumulate(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    public long getMin() {
+        return count.get() == 0 ? 0 : min.get();
+    }
+
+    public long getMax() {
+        return count.get() == 0 ? 0 : max.get();
+    }
+
+    /**
+     * Estimate a percentile from the buckets
+     * @param percentile the percentile, between 0 and 100
+     * @return the lower bound of the bucket the percentile falls in
+     */
+    public long getPercentile(double percentile) {
+        long target = (long) Math.ceil(count.get() * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length(); bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= target && seen > 0) {
+                return bucket * width;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Print the summary statistics and a bar for every bucket up to the last one used
+     * @param out where to print
+     */
+    public void print(PrintStream out) {
+        out.printf("%s: n=%d mean=%.1f min=%d p50=%d p90=%d p99=%d max=%d%n", name, getCount(), getMean(), getMin(),
+            getPercentile(50), getPercentile(90), getPercentile(99), getMax());
+
+        int last = counts.length() - 1;
+        while (last > 0 && counts.get(last) == 0) {
+            last--;
+        }
+
+        long peak = 1;
+        for (int bucket = 0; bucket <= last; bucket++) {
+            peak = Math.max(peak, counts.get(bucket));
+        }
+
+        for (int bucket = 0; bucket <= last; bucket++) {
+            long n = counts.get(bucket);
+            String range = bucket == counts.length() - 1
+                ? String.format("%10d+        ", bucket * width)
+                : String.format("%10d-%-8d", bucket * width, (bucket + 1) * width - 1);
+            out.printf("  %s |%-40s %d%n", range, "#".repeat((int) (n * 40 / peak)), n);
+        }
+        out.println();
+    }
+}
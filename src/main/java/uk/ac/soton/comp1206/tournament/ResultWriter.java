@@ -0,0 +1,68 @@
+package uk.ac.soton.comp1206.tournament;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * The ResultWriter streams GameResults to a compact binary file as they arrive from any thread.
+ *
+ * The file starts with the magic number 0x54524553 ("TRES") and a format version, followed by one fixed size record
+ * of 29 bytes per game: seed (long), score, level, lines and pieces (ints), duration in milliseconds (long) and a
+ * byte which is 1 if the game ended and 0 if it was stopped at the piece limit. Records are in the order the games
+ * finished, not the order of their seeds.
+ */
+public class ResultWriter implements Consumer<GameResult>, Closeable {
+
+    /**
+     * Magic number at the start of every results file
+     */
+    public static final int MAGIC = 0x54524553;
+
+    /**
+     * Version of the record format
+     */
+    public static final int VERSION = 1;
+
+    private final DataOutputStream out;
+
+    /**
+     * Create a results file, replacing any file already at the path
+     * @param path the file to write
+     * @throws IOException if the file cannot be created
+     */
+    public ResultWriter(Path path) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Write a result
+     * @param result the result
+     */
+    @Override
+    public synchronized void accept(GameResult result) {
+        try {
+            out.writeLong(result.getSeed());
+            out.writeInt(result.getScore());
+            out.writeInt(result.getLevel());
+            out.writeInt(result.getLines());
+            out.writeInt(result.getPieces());
+            out.writeLong(result.getDuration());
+            out.writeByte(result.isFinished() ? 1 : 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,184 @@
+package uk.ac.soton.comp1206.tournament;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import uk.ac.soton.comp1206.ai.Strategy;
+import uk.ac.soton.comp1206.event.GameEventListener;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GameRandom;
+import uk.ac.soton.comp1206.game.ManualClock;
+
+/**
+ * A Tournament plays a batch of seeded headless games with a Strategy, spread across every thread of a
+ * ForkJoinPool, and collects histograms of the results.
+ *
+ * Each game runs on a simulated clock which moves forward by a fixed thinking time before every move, so the timer
+ * and the level speed-up are played out exactly as they would be for a player of that pace, without waiting for them.
+ * Game n of a tournament with seed s draws its pieces from a GameRandom seeded with s + n, so any single game can be
+ * replayed on its own.
+ */
+public class Tournament {
+
+    private final Strategy strategy;
+    private final int cols;
+    private final int rows;
+    private final long moveTime;
+    private final int maxPieces;
+
+    private final Histogram scores = new Histogram("score", 1000, 100);
+    private final Histogram levels = new Histogram("level", 1, 40);
+    private final Histogram lines = new Histogram("lines", 10, 50);
+    private final Histogram pieces = new Histogram("pieces", 25, 60);
+    private final Histogram durations = new Histogram("duration (s)", 30, 60);
+    private final AtomicLong stopped = new AtomicLong();
+
+    /**
+     * Create a new tournament
+     * @param strategy the strategy playing every game
+     * @param cols number of columns of the board
+     * @param rows number of rows of the board
+     * @param moveTime simulated milliseconds spent thinking before each move
+     * @param maxPieces number of pieces after which a game that has not ended is stopped
+     */
+    public Tournament(Strategy strategy, int cols, int rows, long moveTime, int maxPieces) {
+        this.strategy = strategy;
+        this.cols = cols;
+        this.rows = rows;
+        this.moveTime = moveTime;
+        this.maxPieces = maxPieces;
+    }
+
+    /**
+     * Play a batch of games, streaming every result to the consumer as soon as its game finishes. The consumer is
+     * called from the worker threads, so it must be thread safe.
+     * @param games number of games to play
+     * @param seed seed of the first game
+     * @param pool the pool to play on
+     * @param results receives every result
+     */
+    public void run(long games, long seed, ForkJoinPool pool, Consumer<GameResult> results) {
+        AtomicLong next = new AtomicLong();
+
+        // One long running worker per thread, each taking the next game until none are left
+        List<RecursiveAction> workers = new ArrayList<>();
+        for (int i = 0; i < pool.getParallelism(); i++) {
+            workers.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    long game;
+                    while ((game = next.getAndIncrement()) < games) {
+                        GameResult result = play(seed + game);
+                        record(result);
+                        results.accept(result);
+                    }
+                }
+            });
+        }
+
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(workers);
+            }
+        });
+    }
+
+    /**
+     * Play a single game to the end, or until the piece limit is reached
+     * @param seed the seed to draw pieces from
+     * @return the result
+     */
+    public GameResult play(long seed) {
+        ManualClock clock = new ManualClock();
+        GameEngine engine = new GameEngine(cols, rows, clock, new GameRandom(seed));
+        LineCounter counter = new LineCounter();
+        engine.addListener(counter);
+        engine.start();
+
+        int placed = 0;
+        while (!engine.isGameOver() && placed < maxPieces) {
+            clock.advance(moveTime);
+            if (engine.tick()) {
+                // Ran out of time while thinking
+                continue;
+            }
+
+            if (strategy.play(engine)) {
+                placed++;
+            } else {
+                // Nowhere to go, so wait for the timer to run out
+                clock.set(engine.getDeadline());
+                engine.tick();
+            }
+        }
+
+        return new GameResult(seed, engine.getScore(), engine.getLevel(), counter.lines, placed, clock.millis(),
+            engine.isGameOver());
+    }
+
+    /**
+     * Add a result to the histograms
+     * @param result the result
+     */
+    private void record(GameResult result) {
+        scores.add(result.getScore());
+        levels.add(result.getLevel());
+        lines.add(result.getLines());
+        pieces.add(result.getPieces());
+        durations.add(result.getDuration() / 1000);
+        if (!result.isFinished()) {
+            stopped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Print the histograms of every result so far
+     * @param out where to print
+     */
+    public void printSummary(PrintStream out) {
+        out.printf("%d games, %d stopped at %d pieces%n%n", scores.getCount(), stopped.get(), maxPieces);
+        scores.print(out);
+        levels.print(out);
+        lines.print(out);
+        pieces.print(out);
+        durations.print(out);
+    }
+
+    public Histogram getScores() {
+        return scores;
+    }
+
+    public Histogram getLevels() {
+        return levels;
+    }
+
+    public Histogram getLines() {
+        return lines;
+    }
+
+    public Histogram getPieces() {
+        return pieces;
+    }
+
+    public Histogram getDurations() {
+        return durations;
+    }
+
+    /**
+     * Counts the lines cleared in a game
+     */
+    private static class LineCounter implements GameEventListener {
+        private int lines = 0;
+
+        @Override
+        public void linesCleared(int numOfLines, int numOfBlocks) {
+            lines += numOfLines;
+        }
+    }
+}
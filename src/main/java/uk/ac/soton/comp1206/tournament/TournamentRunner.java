@@ -0,0 +1,95 @@
+package uk.ac.soton.comp1206.tournament;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import uk.ac.soton.comp1206.ai.AutoPlayer;
+import uk.ac.soton.comp1206.ai.BoardEvaluator;
+
+/**
+ * The TournamentRunner plays a Tournament from the command line, writing every result to a binary results file and
+ * the histograms to a text file next to it.
+ *
+ * Options are given as name=value: games, seed, depth (AutoPlayer lookahead), threads, cols, rows, move (simulated
+ * thinking time in milliseconds), max (piece limit per game) and out (results file).
+ */
+public class TournamentRunner {
+
+    private static final Logger logger = LogManager.getLogger(TournamentRunner.class);
+
+    /**
+     * Run a tournament
+     * @param args commandline arguments
+     * @throws IOException if the results cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        long games = Long.parseLong(option(args, "games", "10000"));
+        long seed = Long.parseLong(option(args, "seed", "1"));
+        int depth = Integer.parseInt(option(args, "depth", "1"));
+        int threads = Integer.parseInt(option(args, "threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int cols = Integer.parseInt(option(args, "cols", "5"));
+        int rows = Integer.parseInt(option(args, "rows", "5"));
+        long moveTime = Long.parseLong(option(args, "move", "2000"));
+        int maxPieces = Integer.parseInt(option(args, "max", "5000"));
+        Path out = Paths.get(option(args, "out", "tournament.bin"));
+
+        // Millions of games are too many to log one by one
+        Configurator.setLevel("uk.ac.soton.comp1206.game", Level.WARN);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        AutoPlayer player = new AutoPlayer(depth, pool, BoardEvaluator.DEFAULT);
+        Tournament tournament = new Tournament(player, cols, rows, moveTime, maxPieces);
+
+        logger.info("Playing {} games from seed {} on {} threads", games, seed, threads);
+        long start = System.nanoTime();
+        long step = Math.max(1, games / 100);
+        AtomicLong done = new AtomicLong();
+
+        try (ResultWriter writer = new ResultWriter(out)) {
+            tournament.run(games, seed, pool, result -> {
+                writer.accept(result);
+                long n = done.incrementAndGet();
+                if (n % step == 0) {
+                    logger.info("{}/{} games, {} games/s", n, games, n * 1_000_000_000L / (System.nanoTime() - start));
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        logger.info("Finished {} games in {}s", games, String.format("%.1f", seconds));
+
+        Path summary = Paths.get(out + ".txt");
+        try (PrintStream stream = new PrintStream(Files.newOutputStream(summary))) {
+            tournament.printSummary(stream);
+        }
+        tournament.printSummary(System.out);
+    }
+
+    /**
+     * Get the value of a name=value option
+     * @param args commandline arguments
+     * @param name option name
+     * @param fallback value to use if the option is not given
+     * @return the value
+     */
+    private static String option(String[] args, String name, String fallback) {
+        for (String arg : args) {
+            if (arg.startsWith(name + "=")) {
+                return arg.substring(name.length() + 1);
+            }
+        }
+        return fallback;
+    }
+}
@@ -9,7 +9,10 @@ import javafx.stage.Stage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.App;
+import uk.ac.soton.comp1206.network.Communicator;
 import uk.ac.soton.comp1206.scene.*;
+import uk.ac.soton.comp1206.scores.RemoteScores;
+import uk.ac.soton.comp1206.scores.ScoreRepository;
 
 /**
  * The GameWindow is the single window for the game where everything takes place. To move between screens in the game,
@@ -30,7 +33,20 @@ public class GameWindow {
     private BaseScene currentScene;
     private Scene scene;
 
-    //final Communicator communicator;
+    /**
+     * The server online scores come from
+     */
+    private static final String SERVER = "ws://discord.ecs.soton.ac.uk:9700";
+
+    /**
+     * The connection to the server, or null when playing offline
+     */
+    private Communicator communicator;
+
+    /**
+     * The online scores, or null when playing offline
+     */
+    private RemoteScores onlineScores;
 
     /**
      * Create a new GameWindow attached to the given stage with the specified width and height
@@ -53,8 +69,11 @@ public class GameWindow {
         //Setup default scene
         setupDefaultScene();
 
-        //Setup communicator
-        //communicator = new Communicator("ws://discord.ecs.soton.ac.uk:9700");
+        //Setup communicator, only when asked for with the tetrecs.online system property
+        if (Boolean.getBoolean("tetrecs.online")) {
+            communicator = new Communicator(SERVER);
+            onlineScores = new RemoteScores(communicator, RemoteScores.DEFAULT_TTL);
+        }
 
         //Go to menu
         startMenu();
@@ -68,6 +87,9 @@ public class GameWindow {
         Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-Regular.ttf"),32);
         Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-Bold.ttf"),32);
         Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-ExtraBold.ttf"),32);
+
+        //Start reading the high scores in the background
+        ScoreRepository.getDefault().load();
     }
 
     /**
@@ -82,10 +104,28 @@ public class GameWindow {
      */
     public void startChallenge() { loadScene(new ChallengeScene(this)); }
 
+    /**
+     * Display the single player challenge on a board of the given size
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    public void startChallenge(int cols, int rows) { loadScene(new ChallengeScene(this, cols, rows)); }
+
+    /**
+     * Display the single player challenge, continuing the saved game
+     */
+    public void resumeChallenge() { loadScene(new ChallengeScene(this, true)); }
+
     public void startInstructions() { loadScene(new InstructionsScene(this)); }
 
     public void startScores() { loadScene(new ScoresScene(this)); }
 
+    /**
+     * Display the scores after a game, offering to save the final score
+     * @param score the final score
+     */
+    public void startScores(int score) { loadScene(new ScoresScene(this, score)); }
+
     /**
      * Setup the default settings for the stage itself (the window), such as the title and minimum width and height.
      */
@@ -156,9 +196,17 @@ public class GameWindow {
 
     /**
      * Get the communicator
-     * @return communicator
+     * @return communicator, or null when playing offline
      */
-    //public Communicator getCommunicator() {
-    //    return communicator;
-    //}
+    public Communicator getCommunicator() {
+        return communicator;
+    }
+
+    /**
+     * Get the online scores
+     * @return online scores, or null when playing offline
+     */
+    public RemoteScores getOnlineScores() {
+        return onlineScores;
+    }
 }
\ No newline at end of file
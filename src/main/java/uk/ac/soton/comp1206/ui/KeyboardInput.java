@@ -0,0 +1,236 @@
+package uk.ac.soton.comp1206.ui;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+
+/**
+ * KeyboardInput turns key presses into game input at a steady rate, whatever rate the operating system repeats keys.
+ *
+ * Movement keys are sampled once per frame. A movement key moves once when pressed, then after the delayed auto shift
+ * (DAS) it repeats every auto repeat rate (ARR) for as long as it is held. An ARR of 0 moves straight to the edge of the
+ * board. All the movement due in a frame is added up and sent as one move, so holding a key costs one update a frame.
+ *
+ * Action keys run once when pressed and are not repeated. Any movement not yet sent is sent first, so inputs always
+ * reach the game in the order they were made.
+ *
+ * The operating system's own key repeats are ignored.
+ */
+public class KeyboardInput {
+
+    /**
+     * Receives the movement added up over a frame
+     */
+    @FunctionalInterface
+    public interface Mover {
+        void move(int dx, int dy);
+    }
+
+    /**
+     * The delayed auto shift in milliseconds unless the tetrecs.das system property says otherwise
+     */
+    public static final int DEFAULT_DAS = 170;
+
+    /**
+     * The auto repeat rate in milliseconds unless the tetrecs.arr system property says otherwise
+     */
+    public static final int DEFAULT_ARR = 50;
+
+    /**
+     * The direction of each movement key
+     */
+    private final Map<KeyCode, int[]> directions = new EnumMap<>(KeyCode.class);
+
+    /**
+     * The action of each action key
+     */
+    private final Map<KeyCode, Runnable> actions = new EnumMap<>(KeyCode.class);
+
+    /**
+     * The movement keys being held, in the order they were pressed
+     */
+    private final List<Held> held = new ArrayList<>();
+
+    private final Mover mover;
+
+    /**
+     * The delayed auto shift and auto repeat rate in nanoseconds
+     */
+    private final long das, arr;
+
+    /**
+     * The most moves one key can make in a frame, enough to cross the board
+     */
+    private final int maxSteps;
+
+    /**
+     * Movement not yet sent
+     */
+    private int dx = 0, dy = 0;
+
+    /**
+     * Create a keyboard input with the DAS and ARR from the system properties, or the defaults
+     * @param mover receives the movement
+     * @param maxSteps the most moves one key can make in a frame, usually the size of the board
+     */
+    public KeyboardInput(Mover mover, int maxSteps) {
+        this(mover, maxSteps, Integer.getInteger("tetrecs.das", DEFAULT_DAS),
+            Integer.getInteger("tetrecs.arr", DEFAULT_ARR));
+    }
+
+    /**
+     * Create a keyboard input
+     * @param mover receives the movement
+     * @param maxSteps the most moves one key can make in a frame, usually the size of the board
+     * @param das milliseconds a key is held before it starts repeating
+     * @param arr milliseconds between repeats, or 0 to move to the edge at once
+     */
+    public KeyboardInput(Mover mover, int maxSteps, int das, int arr) {
+        if (das < 0 || arr < 0) {
+            throw new IllegalArgumentException("DAS and ARR must not be negative: " + das + ", " + arr);
+        }
+        this.mover = mover;
+        this.maxSteps = maxSteps;
+        this.das = das * 1_000_000L;
+        this.arr = arr * 1_000_000L;
+    }
+
+    /**
+     * Make some keys move in a direction
+     * @param keys the keys
+     * @param dx change in column for every move
+     * @param dy change in row for every move
+     */
+    public void bindMove(Set<KeyCode> keys, int dx, int dy) {
+        for (KeyCode key : keys) {
+            directions.put(key, new int[] { dx, dy });
+        }
+    }
+
+    /**
+     * Make some keys run an action
+     * @param keys the keys
+     * @param action the action
+     */
+    public void bindAction(Set<KeyCode> keys, Runnable action) {
+        for (KeyCode key : keys) {
+            actions.put(key, action);
+        }
+    }
+
+    /**
+     * Handle a key being pressed
+     * @param e the key event
+     */
+    public void keyPressed(KeyEvent e) {
+        KeyCode code = e.getCode();
+
+        int[] direction = directions.get(code);
+        if (direction != null) {
+            if (find(code) == null) {
+                held.add(new Held(code, direction, System.nanoTime()));
+                dx += direction[0];
+                dy += direction[1];
+            }
+            return;
+        }
+
+        Runnable action = actions.get(code);
+        if (action != null) {
+            flush();
+            action.run();
+        }
+    }
+
+    /**
+     * Handle a key being released
+     * @param e the key event
+     */
+    public void keyReleased(KeyEvent e) {
+        Held key = find(e.getCode());
+        if (key != null) {
+            held.remove(key);
+        }
+    }
+
+    /**
+     * Add the repeats due from every held key and send the movement. Call once per frame.
+     * @param now the time of the frame in nanoseconds, as given to an AnimationTimer
+     */
+    public void update(long now) {
+        for (Held key : held) {
+            int due = key.due(now);
+            int moves = due - key.moves;
+            key.moves = due;
+            dx += moves * key.direction[0];
+            dy += moves * key.direction[1];
+        }
+        flush();
+    }
+
+    /**
+     * Forget every held key, for when the keyboard focus is lost
+     */
+    public void reset() {
+        held.clear();
+        dx = dy = 0;
+    }
+
+    /**
+     * Send any movement not yet sent
+     */
+    private void flush() {
+        if (dx != 0 || dy != 0) {
+            mover.move(dx, dy);
+            dx = dy = 0;
+        }
+    }
+
+    private Held find(KeyCode code) {
+        for (Held key : held) {
+            if (key.code == code) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A movement key being held
+     */
+    private class Held {
+        final KeyCode code;
+        final int[] direction;
+        final long pressed;
+
+        /**
+         * The moves made so far, including the first
+         */
+        int moves = 1;
+
+        Held(KeyCode code, int[] direction, long pressed) {
+            this.code = code;
+            this.direction = direction;
+            this.pressed = pressed;
+        }
+
+        /**
+         * Get the total number of moves this key should have made by the given time
+         */
+        int due(long now) {
+            long time = now - pressed;
+            if (time < das) {
+                return 1;
+            }
+            if (arr == 0) {
+                return 1 + maxSteps;
+            }
+            return (int) Math.min(moves + maxSteps, 2 + (time - das) / arr);
+        }
+    }
+}
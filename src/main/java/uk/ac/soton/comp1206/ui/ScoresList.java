@@ -1,6 +1,17 @@
 package uk.ac.soton.comp1206.ui;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import javafx.animation.FadeTransition;
+import javafx.application.Platform;
 import javafx.beans.property.ListProperty;
 import javafx.beans.property.SimpleListProperty;
 import javafx.collections.ListChangeListener;
@@ -12,66 +23,291 @@ import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
 import javafx.util.Duration;
 import javafx.util.Pair;
+import uk.ac.soton.comp1206.scores.ScoreSource;
 
+/**
+ * The ScoresList shows a window of a leaderboard of any length. Only the rows on screen exist: a fixed set of rows is
+ * made once and scrolling shows different scores in the same rows.
+ *
+ * The scores come either from the scores property or from a ScoreSource read a page at a time, keeping the last few
+ * pages read. When the scores change only the rows showing a different score are updated, and only scores which were
+ * not on screen before fade in, so a new score appears without redrawing the rest of the list.
+ */
 public class ScoresList extends VBox {
 
+    private static final Logger logger = LogManager.getLogger(ScoresList.class);
+
+    /**
+     * The number of scores read from a source at once
+     */
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * The number of pages kept
+     */
+    private static final int CACHED_PAGES = 8;
+
+    /**
+     * The number of rows moved by one step of the mouse wheel
+     */
+    private static final int SCROLL_STEP = 3;
+
     public final SimpleListProperty<Pair<String, Integer>> scores = new SimpleListProperty<>();
 
+    private final List<Row> rows = new ArrayList<>();
+
+    private ScoreSource source;
+
+    /**
+     * The number of scores in the source
+     */
+    private long count = 0;
+
+    /**
+     * The index of the score in the top row
+     */
+    private long first = 0;
+
+    /**
+     * The pages read from the source, least recently used first
+     */
+    private final Map<Long, Page> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Page> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+
+    /**
+     * The pages being read
+     */
+    private final Set<Long> requested = new HashSet<>();
+
+    /**
+     * Goes up every time the source changes, so pages read before then are read again
+     */
+    private int generation = 0;
 
     public ScoresList() {
+        this(5);
+    }
+
+    /**
+     * Create a scores list
+     * @param visibleRows the number of scores shown at once
+     */
+    public ScoresList(int visibleRows) {
         //Set Style
         getStyleClass().add("scorelist");
         setAlignment(Pos.CENTER);
         setSpacing(2);
 
-        scores.addListener((ListChangeListener<? super Pair<String, Integer>>) (c) -> updateList());
+        for (int i = 0; i < visibleRows; i++) {
+            Row row = new Row();
+            rows.add(row);
+            getChildren().add(row);
+        }
+
+        scores.addListener((ListChangeListener<? super Pair<String, Integer>>) (c) -> {
+            if (source == null) {
+                count = scores.size();
+                updateList(true);
+            }
+        });
+        setOnScroll(e -> {
+            if (e.getDeltaY() != 0) {
+                scrollBy(e.getDeltaY() < 0 ? SCROLL_STEP : -SCROLL_STEP);
+            }
+        });
+    }
+
+    /**
+     * Show the scores from a source instead of the scores property
+     * @param source the source, or null to go back to the scores property
+     */
+    public void setSource(ScoreSource source) {
+        this.source = source;
+        pages.clear();
+        requested.clear();
+        generation++;
+        first = 0;
+        if (source == null) {
+            count = scores.size();
+            updateList(true);
+        } else {
+            refresh();
+        }
+    }
+
+    /**
+     * Read the scores on screen from the source again, after scores have been added to it. The old scores stay on
+     * screen until the new ones arrive.
+     */
+    public void refresh() {
+        if (source == null) {
+            return;
+        }
+        generation++;
+        requested.clear();
+        int current = generation;
+        source.getCount().thenAcceptAsync(size -> {
+            if (current == generation) {
+                count = size;
+                scrollTo(first);
+                updateList(true);
+            }
+        }, Platform::runLater).exceptionally(this::failed);
     }
 
-    public void updateList() {
-        getChildren().clear();
+    /**
+     * Move the list by a number of rows
+     * @param delta rows to move, positive to move down the leaderboard
+     */
+    public void scrollBy(long delta) {
+        scrollTo(first + delta);
+    }
 
-        int counter = 0;
+    /**
+     * Move the list so a score is in the top row, or as near as it can be
+     * @param index the index of the score, counting from 0
+     */
+    public void scrollTo(long index) {
+        long last = Math.max(0, count - rows.size());
+        long top = Math.max(0, Math.min(index, last));
+        if (top != first) {
+            first = top;
+            updateList(false);
+        }
+    }
 
-        for(Pair<String, Integer> score : scores) {
-            counter++;
-            if(counter > 5) {
-                break;
+    /**
+     * Show the scores in the window in the rows, changing only the rows which show something different
+     * @param reveal true to fade in scores which were not on screen before
+     */
+    public void updateList(boolean reveal) {
+        Set<Pair<String, Integer>> shown = new HashSet<>();
+        for (Row row : rows) {
+            if (row.score != null) {
+                shown.add(row.score);
             }
+        }
 
-            HBox scoreBox = new HBox();
-            scoreBox.getStyleClass().add("scoreitem");
-            scoreBox.setAlignment(Pos.CENTER);
-            scoreBox.setSpacing(10);
+        for (int i = 0; i < rows.size(); i++) {
+            long index = first + i;
+            Pair<String, Integer> score = index < count ? get(index) : null;
+            rows.get(i).show(score, reveal && score != null && !shown.contains(score));
+        }
+
+        // Read the pages either side of the window before they are needed
+        if (source != null && count > 0) {
+            get(Math.max(0, first - rows.size()));
+            get(Math.min(count - 1, first + 2L * rows.size()));
+        }
+    }
+
+    /**
+     * Get a score, reading its page from the source if it is not already kept
+     * @return the score, or null if it has not been read yet
+     */
+    private Pair<String, Integer> get(long index) {
+        if (source == null) {
+            return index < scores.size() ? scores.get((int) index) : null;
+        }
+
+        long number = index / PAGE_SIZE;
+        Page page = pages.get(number);
+        if ((page == null || page.generation != generation) && requested.add(number)) {
+            int current = generation;
+            source.getPage(number, PAGE_SIZE).thenAcceptAsync(scores -> {
+                if (current == generation) {
+                    requested.remove(number);
+                    pages.put(number, new Page(scores, current));
+                    updateList(true);
+                }
+            }, Platform::runLater).exceptionally(this::failed);
+        }
+
+        int offset = (int) (index - number * PAGE_SIZE);
+        return page == null || offset >= page.scores.size() ? null : page.scores.get(offset);
+    }
+
+    private Void failed(Throwable e) {
+        logger.error("Could not read scores", e);
+        return null;
+    }
+
+    public ListProperty<Pair<String, Integer>> scoreProperty() {
+        return scores;
+    }
+
+    /**
+     * Some scores read from the source
+     */
+    private static class Page {
+        final List<Pair<String, Integer>> scores;
+        final int generation;
+
+        Page(List<Pair<String, Integer>> scores, int generation) {
+            this.scores = scores;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * A row of the list, showing whichever score is at its position in the window
+     */
+    private static class Row extends HBox {
+        final Text name = new Text();
+        final Text points = new Text();
+
+        /**
+         * The score shown, or null if the row is empty
+         */
+        Pair<String, Integer> score;
+
+        Row() {
+            getStyleClass().add("scoreitem");
+            setAlignment(Pos.CENTER);
+            setSpacing(10);
 
-            var name = new Text(score.getKey());
             name.getStyleClass().add("scorer");
             name.setTextAlignment(TextAlignment.CENTER);
             HBox.setHgrow(name, Priority.ALWAYS);
 
-            var points = new Text(score.getValue().toString());
             points.getStyleClass().add("points");
             points.setTextAlignment(TextAlignment.CENTER);
             HBox.setHgrow(points, Priority.ALWAYS);
 
-            scoreBox.getChildren().addAll(name, points);
-
-            getChildren().add(scoreBox);
+            getChildren().addAll(name, points);
+            setVisible(false);
+        }
 
-            reveal();
+        /**
+         * Show a score, doing nothing if it is already shown
+         */
+        void show(Pair<String, Integer> score, boolean reveal) {
+            if (score == null ? this.score == null : score.equals(this.score)) {
+                return;
+            }
+            this.score = score;
+            setVisible(score != null);
+            if (score == null) {
+                return;
+            }
+            name.setText(score.getKey());
+            points.setText(score.getValue().toString());
+            if (reveal) {
+                reveal();
+            }
         }
-    }
 
-    //Animate score reveal
-    public void reveal() {
+        //Animate score reveal
+        void reveal() {
             FadeTransition fade = new FadeTransition(Duration.millis(3000), this);
             fade.setFromValue(0);
             fade.setToValue(1);
             fade.setCycleCount(1);
             fade.play();
+        }
     }
-
-    public ListProperty<Pair<String, Integer>> scoreProperty() {
-        return scores;
-    }
-
 }
@@ -14,4 +14,8 @@ module uk.ac.soton.comp1206 {
     exports uk.ac.soton.comp1206.event;
     exports uk.ac.soton.comp1206.component;
     exports uk.ac.soton.comp1206.game;
+    exports uk.ac.soton.comp1206.ai;
+    exports uk.ac.soton.comp1206.tournament;
+    exports uk.ac.soton.comp1206.replay;
+    exports uk.ac.soton.comp1206.scores;
 }
\ No newline at end of file